@@ -0,0 +1,137 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import picturelab.bench.PictureOps;
+
+/**
+ * Class that lets the benchmarks (which are in a named package) call the
+ * PictureLab classes (which are in the default package).  Each method
+ * just calls the lab code the way a student program would.
+ */
+public class PictureLabOps implements PictureOps
+{
+  public Object create(int width, int height, long seed)
+  {
+    BufferedImage image = new BufferedImage(width, height,
+                                            BufferedImage.TYPE_INT_RGB);
+    Random random = new Random(seed);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+        row[x] = random.nextInt();
+      image.setRGB(0, y, width, 1, row, 0, width);
+    }
+    return new Picture(image);
+  }
+
+  public Object load(String fileName) throws IOException
+  {
+    if (!new File(fileName).canRead())
+      throw new IOException(fileName + " can't be read");
+    return new Picture(fileName);
+  }
+
+  public void write(Object picture, String fileName) throws IOException
+  {
+    ((Picture) picture).writeOrFail(fileName);
+  }
+
+  public void setCacheBytes(long bytes)
+  {
+    ImageCache.getDefault().setMaxBytes(bytes);
+  }
+
+  public Object copyOf(Object picture)
+  {
+    return new Picture((Picture) picture);
+  }
+
+  public int getWidth(Object picture)
+  {
+    return ((Picture) picture).getWidth();
+  }
+
+  public int getHeight(Object picture)
+  {
+    return ((Picture) picture).getHeight();
+  }
+
+  public long sumWithGetPixel(Object object)
+  {
+    Picture picture = (Picture) object;
+    long sum = 0;
+    for (int y = 0; y < picture.getHeight(); y++)
+      for (int x = 0; x < picture.getWidth(); x++)
+      {
+        Pixel pixel = picture.getPixel(x, y);
+        sum += pixel.getRed() + pixel.getGreen() + pixel.getBlue();
+      }
+    return sum;
+  }
+
+  public long sumWithPixels2D(Object object)
+  {
+    long sum = 0;
+    for (Pixel[] rowArray : ((Picture) object).getPixels2D())
+      for (Pixel pixel : rowArray)
+        sum += pixel.getRed() + pixel.getGreen() + pixel.getBlue();
+    return sum;
+  }
+
+  public void invertWithSetters(Object object)
+  {
+    Picture picture = (Picture) object;
+    for (int y = 0; y < picture.getHeight(); y++)
+      for (int x = 0; x < picture.getWidth(); x++)
+      {
+        Pixel pixel = picture.getPixel(x, y);
+        pixel.setRed(255 - pixel.getRed());
+        pixel.setGreen(255 - pixel.getGreen());
+        pixel.setBlue(255 - pixel.getBlue());
+      }
+  }
+
+  public void zeroBlue(Object picture) { ((Picture) picture).zeroBlue(); }
+
+  public void negate(Object picture) { ((Picture) picture).negate(); }
+
+  public void grayscale(Object picture) { ((Picture) picture).grayscale(); }
+
+  public void sepia(Object picture) { ((Picture) picture).sepia(); }
+
+  public void mirrorVertical(Object picture)
+  {
+    ((Picture) picture).mirrorVertical();
+  }
+
+  public void edgeDetection(Object picture, int edgeDist)
+  {
+    ((Picture) picture).edgeDetection(edgeDist);
+  }
+
+  public void copy(Object from, Object to)
+  {
+    ((Picture) to).copy((Picture) from, 0, 0);
+  }
+
+  public void cropAndCopy(Object from, Object to)
+  {
+    Picture source = (Picture) from;
+    int width = source.getWidth();
+    int height = source.getHeight();
+    ((Picture) to).cropAndCopy(source, height / 4, height * 3 / 4 - 1,
+                               width / 4, width * 3 / 4 - 1, 0, 0);
+  }
+
+  public Object scale(Object picture, double factor)
+  {
+    return ((Picture) picture).scale(factor, factor);
+  }
+
+  public Object scaleByHalf(Object picture)
+  {
+    return ((Picture) picture).scaleByHalf();
+  }
+}
@@ -0,0 +1,39 @@
+package picturelab.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Class that runs the benchmarks with the usual JMH command line
+ * options (see -h) and always adds the GC profiler, so every result comes with
+ * the allocation rate.
+ */
+public class BenchmarkMain
+{
+  /**
+   * Method to run the benchmarks
+   * @param args the JMH command line options
+   */
+  public static void main(String[] args) throws Exception
+  {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    if (commandLine.shouldHelp() || commandLine.shouldList() ||
+        commandLine.shouldListWithParams() ||
+        commandLine.shouldListProfilers() ||
+        commandLine.shouldListResultFormats())
+    {
+      // nothing to run, so let JMH print what was asked for
+      Main.main(args);
+      return;
+    }
+    Options options = new OptionsBuilder()
+      .parent(commandLine)
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,58 @@
+package picturelab.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for copying and scaling pictures.  The megapixels counted
+ * are the ones read from the source picture.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopyBenchmark
+{
+  @Benchmark
+  public void copy(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.copy(state.picture, state.target);
+  }
+
+  @Benchmark
+  public void cropAndCopy(PictureState state, Megapixels counter)
+  {
+    // the middle half of the width and height is a quarter of the pixels
+    counter.megapixels += state.megapixels / 4;
+    PictureState.OPS.cropAndCopy(state.picture, state.target);
+  }
+
+  @Benchmark
+  public Object copyConstructor(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    return PictureState.OPS.copyOf(state.picture);
+  }
+
+  @Benchmark
+  public Object scale(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    return PictureState.OPS.scale(state.picture, 0.75);
+  }
+
+  @Benchmark
+  public Object scaleByHalf(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    return PictureState.OPS.scaleByHalf(state.picture);
+  }
+}
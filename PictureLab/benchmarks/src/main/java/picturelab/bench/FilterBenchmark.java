@@ -0,0 +1,67 @@
+package picturelab.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the Picture filters.  Each filter changes the picture
+ * in place, so it is run on a copy of the original that is made again
+ * before each call (see FilterState).  Running a filter on its own
+ * result can cost something else, like edgeDetection on a picture that
+ * is only black and white.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark
+{
+  @Benchmark
+  public void zeroBlue(FilterState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.zeroBlue(state.target);
+  }
+
+  @Benchmark
+  public void negate(FilterState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.negate(state.target);
+  }
+
+  @Benchmark
+  public void grayscale(FilterState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.grayscale(state.target);
+  }
+
+  @Benchmark
+  public void sepia(FilterState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.sepia(state.target);
+  }
+
+  @Benchmark
+  public void mirrorVertical(FilterState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.mirrorVertical(state.target);
+  }
+
+  @Benchmark
+  public void edgeDetection(FilterState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.edgeDetection(state.target, 10);
+  }
+}
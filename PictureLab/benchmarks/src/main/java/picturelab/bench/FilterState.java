@@ -0,0 +1,25 @@
+package picturelab.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class for the picture a filter benchmark changes.  The filters work
+ * on the target, which is made a copy of the original picture again
+ * before each call so every call filters the same pixels.  The copying
+ * isn't part of the time measured.
+ */
+@State(Scope.Thread)
+public class FilterState extends PictureState
+{
+  /**
+   * Method to copy the original picture into the target
+   */
+  @Setup(Level.Invocation)
+  public void restore()
+  {
+    OPS.copy(picture, target);
+  }
+}
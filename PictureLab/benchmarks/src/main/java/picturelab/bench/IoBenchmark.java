@@ -0,0 +1,109 @@
+package picturelab.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for loading and writing picture files.  The picture is
+ * written to a temporary file in each format first so that loading
+ * reads a file of the same size and format as writing makes.  Loading
+ * is measured with the cache of decoded files turned off (decoding
+ * every time) and on.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IoBenchmark
+{
+  /**
+   * Class for the files read and written
+   */
+  @State(Scope.Thread)
+  public static class Files
+  {
+    /** the format of the files */
+    @Param({"jpg", "png"})
+    public String format;
+
+    /** the file to load */
+    public File input;
+
+    /** the file to write */
+    public File output;
+
+    /**
+     * Method to write the file to load
+     * @param state the picture
+     * @throws IOException if the file can't be written
+     */
+    @Setup
+    public void setUp(PictureState state) throws IOException
+    {
+      input = File.createTempFile("picturelab-in", "." + format);
+      output = File.createTempFile("picturelab-out", "." + format);
+      PictureState.OPS.write(state.picture, input.getPath());
+    }
+
+    /**
+     * Method to delete the files
+     */
+    @TearDown
+    public void tearDown()
+    {
+      input.delete();
+      output.delete();
+    }
+  }
+
+  /**
+   * Class for turning the cache of decoded files off or on
+   */
+  @State(Scope.Thread)
+  public static class Cache
+  {
+    /** true to load through the cache of decoded files */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    /**
+     * Method to set the size of the cache
+     */
+    @Setup
+    public void setUp()
+    {
+      PictureState.OPS.setCacheBytes(cached ? 256L << 20 : 0);
+    }
+  }
+
+  @Benchmark
+  public Object load(PictureState state, Files files, Cache cache,
+                     Megapixels counter)
+    throws IOException
+  {
+    counter.megapixels += state.megapixels;
+    return PictureState.OPS.load(files.input.getPath());
+  }
+
+  @Benchmark
+  public void write(PictureState state, Files files, Megapixels counter)
+    throws IOException
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.write(state.picture, files.output.getPath());
+  }
+}
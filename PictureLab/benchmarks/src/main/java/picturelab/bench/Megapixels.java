@@ -0,0 +1,30 @@
+package picturelab.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class that counts the megapixels a benchmark has worked on.  JMH
+ * reports the count as a rate next to the operations, so the results
+ * include megapixels per second, which can be compared across picture
+ * sizes.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Megapixels
+{
+  /** the megapixels done in this iteration */
+  public double megapixels;
+
+  /**
+   * Method to start each iteration at 0
+   */
+  @Setup(Level.Iteration)
+  public void clear()
+  {
+    megapixels = 0;
+  }
+}
@@ -0,0 +1,168 @@
+package picturelab.bench;
+
+import java.io.IOException;
+
+/**
+ * Interface for the PictureLab operations that are measured.  The lab
+ * classes are in the default package, which code in a named package
+ * (and JMH needs benchmarks to be in one) can't refer to, so the
+ * benchmarks call them through this interface.  The only class that
+ * implements it is PictureLabOps in the default package, so the JIT
+ * compiler can inline the calls and the interface costs nothing.
+ *
+ * Pictures are passed around as Objects.
+ */
+public interface PictureOps
+{
+  /**
+   * Method to get the operations
+   * @return the one implementation of this interface
+   */
+  public static PictureOps get()
+  {
+    try {
+      return (PictureOps) Class.forName("PictureLabOps")
+        .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException("PictureLabOps is missing", ex);
+    }
+  }
+
+  /**
+   * Method to make a picture filled with random colors
+   * @param width the width of the picture
+   * @param height the height of the picture
+   * @param seed the seed for the random colors
+   * @return the picture
+   */
+  public Object create(int width, int height, long seed);
+
+  /**
+   * Method to load a picture from a file
+   * @param fileName the name of the file
+   * @return the picture
+   * @throws IOException if the file can't be read
+   */
+  public Object load(String fileName) throws IOException;
+
+  /**
+   * Method to write a picture to a file
+   * @param picture the picture
+   * @param fileName the name of the file (the extension picks the format)
+   * @throws IOException if the file can't be written
+   */
+  public void write(Object picture, String fileName) throws IOException;
+
+  /**
+   * Method to set the size of the cache of decoded files
+   * @param bytes the most bytes to cache (0 turns it off)
+   */
+  public void setCacheBytes(long bytes);
+
+  /**
+   * Method to make a copy of a picture
+   * @param picture the picture
+   * @return the copy
+   */
+  public Object copyOf(Object picture);
+
+  /**
+   * Method to get the width of a picture
+   * @param picture the picture
+   * @return the width in pixels
+   */
+  public int getWidth(Object picture);
+
+  /**
+   * Method to get the height of a picture
+   * @param picture the picture
+   * @return the height in pixels
+   */
+  public int getHeight(Object picture);
+
+  /**
+   * Method to read every pixel with getPixel and its color accessors
+   * @param picture the picture
+   * @return the sum of the red, green and blue values
+   */
+  public long sumWithGetPixel(Object picture);
+
+  /**
+   * Method to read every pixel from the array of getPixels2D
+   * @param picture the picture
+   * @return the sum of the red, green and blue values
+   */
+  public long sumWithPixels2D(Object picture);
+
+  /**
+   * Method to change every pixel with getPixel and the color setters
+   * @param picture the picture
+   */
+  public void invertWithSetters(Object picture);
+
+  /**
+   * Method to call Picture.zeroBlue on a picture
+   * @param picture the picture
+   */
+  public void zeroBlue(Object picture);
+
+  /**
+   * Method to call Picture.negate on a picture
+   * @param picture the picture
+   */
+  public void negate(Object picture);
+
+  /**
+   * Method to call Picture.grayscale on a picture
+   * @param picture the picture
+   */
+  public void grayscale(Object picture);
+
+  /**
+   * Method to call Picture.sepia on a picture
+   * @param picture the picture
+   */
+  public void sepia(Object picture);
+
+  /**
+   * Method to call Picture.mirrorVertical on a picture
+   * @param picture the picture
+   */
+  public void mirrorVertical(Object picture);
+
+  /**
+   * Method to call Picture.edgeDetection on a picture
+   * @param picture the picture
+   * @param edgeDist the color distance that counts as an edge
+   */
+  public void edgeDetection(Object picture, int edgeDist);
+
+  /**
+   * Method to copy all of one picture into another at 0, 0
+   * @param from the picture to copy
+   * @param to the picture to copy into
+   */
+  public void copy(Object from, Object to);
+
+  /**
+   * Method to copy the middle half of one picture into another at 0, 0
+   * @param from the picture to copy from
+   * @param to the picture to copy into
+   */
+  public void cropAndCopy(Object from, Object to);
+
+  /**
+   * Method to scale a picture
+   * @param picture the picture
+   * @param factor the factor for the width and height
+   * @return the new picture
+   */
+  public Object scale(Object picture, double factor);
+
+  /**
+   * Method to scale a picture to half its width and height
+   * @param picture the picture
+   * @return the new picture
+   */
+  public Object scaleByHalf(Object picture);
+}
@@ -0,0 +1,64 @@
+package picturelab.bench;
+
+import java.io.File;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class for the picture a benchmark works on.  The image parameter is
+ * either the name of a file in the images directory or a size like
+ * 1920x1080 for a picture filled with random colors, so the benchmarks
+ * cover the small pictures the lab uses as well as big photographs.
+ */
+@State(Scope.Thread)
+public class PictureState
+{
+  /** the operations on pictures */
+  public static final PictureOps OPS = PictureOps.get();
+
+  /** the file in the images directory, or the size of a random picture */
+  @Param({"flower1.jpg", "CumberlandIsland.jpg", "beach.jpg",
+          "1920x1080", "4000x3000"})
+  public String image;
+
+  /** the picture */
+  public Object picture;
+
+  /** a second picture the same size, to copy into */
+  public Object target;
+
+  /** the number of megapixels in the picture */
+  public double megapixels;
+
+  /**
+   * Method to get the directory the pictures are read from
+   * @return the directory in the picturelab.images system property,
+   * or ../images
+   */
+  public static File getImageDirectory()
+  {
+    return new File(System.getProperty("picturelab.images", "../images"));
+  }
+
+  /**
+   * Method to load or make the picture
+   * @throws IOException if the file can't be read
+   */
+  @Setup
+  public void setUp() throws IOException
+  {
+    int posX = image.indexOf('x');
+    if (posX > 0 && Character.isDigit(image.charAt(0)) &&
+        !image.contains("."))
+      picture = OPS.create(Integer.parseInt(image.substring(0, posX)),
+                           Integer.parseInt(image.substring(posX + 1)),
+                           image.hashCode());
+    else
+      picture = OPS.load(new File(getImageDirectory(), image).getPath());
+    target = OPS.copyOf(picture);
+    megapixels = (double) OPS.getWidth(picture) * OPS.getHeight(picture) / 1e6;
+  }
+}
@@ -0,0 +1,44 @@
+package picturelab.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for reading and writing pixels one at a time the way the
+ * lab exercises do, through getPixel, getPixels2D and the Pixel color
+ * accessors.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelBenchmark
+{
+  @Benchmark
+  public long getPixelAccessors(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    return PictureState.OPS.sumWithGetPixel(state.picture);
+  }
+
+  @Benchmark
+  public long getPixels2D(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    return PictureState.OPS.sumWithPixels2D(state.picture);
+  }
+
+  @Benchmark
+  public void setPixelAccessors(PictureState state, Megapixels counter)
+  {
+    counter.megapixels += state.megapixels;
+    PictureState.OPS.invertWithSetters(state.picture);
+  }
+}
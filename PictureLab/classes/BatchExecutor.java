@@ -0,0 +1,234 @@
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Class that runs a task on each of many pictures at once without
+ * running out of memory.  Each picture gets its own thread (a virtual
+ * thread when the Java version has them) but a task only loads its
+ * picture once there is room for it in a memory budget.  The room a
+ * picture needs is worked out from the width and height in the file
+ * header before it is decoded, so many small pictures can run at once
+ * while a huge one runs with only a few others.  A picture needs 4
+ * bytes for each pixel, and twice that while it is being decoded since
+ * the decoded image may have to be changed into ints.  The pictures
+ * aren't put in the image cache so they take no other memory.  Only a
+ * few files are open at a time however many tasks are waiting.  For
+ * example:
+ * <pre>
+ *   BatchExecutor executor = new BatchExecutor();
+ *   for (String fileName : fileNames)
+ *     executor.submit(fileName, picture -> { picture.grayscale(); return null; });
+ *   executor.close();
+ * </pre>
+ */
+public class BatchExecutor implements AutoCloseable
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the number of bytes for each permit of the semaphore */
+  private static final int BYTES_PER_PERMIT = 1024;
+
+  /** the most files that are read at the same time */
+  private static final int MAX_OPEN_FILES = 64;
+
+  /** the threads that run the tasks */
+  private ExecutorService executor;
+
+  /** true if the tasks run on virtual threads */
+  private boolean virtual;
+
+  /** the memory budget in permits */
+  private int budget;
+
+  /** the permits for the memory that tasks can use */
+  private Semaphore admission;
+
+  /** the permits for the files that can be open at once */
+  private Semaphore openFiles = new Semaphore(MAX_OPEN_FILES);
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that uses half of the memory the Java virtual machine
+   * can use as the budget
+   */
+  public BatchExecutor()
+  {
+    this(Runtime.getRuntime().maxMemory() / 2);
+  }
+
+  /**
+   * A constructor that takes the memory budget
+   * @param memoryBudget the most bytes of decoded pictures to have in
+   * memory at once
+   */
+  public BatchExecutor(long memoryBudget)
+  {
+    if (memoryBudget < BYTES_PER_PERMIT)
+      throw new IllegalArgumentException("the memory budget is too small");
+    budget = (int) Math.min(Integer.MAX_VALUE, memoryBudget / BYTES_PER_PERMIT);
+    admission = new Semaphore(budget, true);
+    executor = newVirtualThreadExecutor();
+    virtual = (executor != null);
+    if (!virtual)
+    {
+      // waiting tasks hold a thread each, so only have a few
+      int threads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+      executor = Executors.newFixedThreadPool(threads, task -> {
+        Thread thread = new Thread(task, "BatchExecutor");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to make an executor that starts a virtual thread for each
+   * task.  Reflection is used so this still compiles and runs on Java
+   * versions without virtual threads.
+   * @return the executor, or null if there are no virtual threads
+   */
+  private static ExecutorService newVirtualThreadExecutor()
+  {
+    try {
+      return (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Method to check if the tasks run on virtual threads
+   * @return true for virtual threads, false for a pool of platform
+   * threads
+   */
+  public boolean isVirtual() { return virtual; }
+
+  /**
+   * Method to get the memory budget
+   * @return the most bytes of decoded pictures in memory at once
+   */
+  public long getMemoryBudget()
+  {
+    return (long) budget * BYTES_PER_PERMIT;
+  }
+
+  /**
+   * Method to get the memory taken by the tasks that are running now
+   * @return the bytes of decoded pictures in memory
+   */
+  public long getMemoryInUse()
+  {
+    return (long) (budget - admission.availablePermits()) * BYTES_PER_PERMIT;
+  }
+
+  /**
+   * Method to work out the memory a picture file needs once decoded
+   * @param fileName the name of the file
+   * @return the number of permits
+   * @throws IOException if the file header can't be read
+   * @throws InterruptedException if the thread is interrupted while
+   * waiting to open the file
+   */
+  private long getPermits(String fileName)
+    throws IOException, InterruptedException
+  {
+    Dimension size;
+    openFiles.acquire();
+    try {
+      size = SimplePicture.getImageSize(fileName);
+    } finally {
+      openFiles.release();
+    }
+    long bytes = (long) size.width * size.height * 4;
+    return Math.max(1, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT);
+  }
+
+  /**
+   * Method to run a task on a picture once there is memory for it
+   * @param fileName the name of the file to load the picture from
+   * @param task the code to run on the loaded picture
+   * @return a future that holds the result of the task, or the exception
+   * if the picture couldn't be loaded or the task failed
+   */
+  public <T> CompletableFuture<T> submit(final String fileName,
+                                         final Function<Picture,T> task)
+  {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return run(fileName, task);
+      } catch (IOException ex) {
+        throw new CompletionException(ex);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new CompletionException(ex);
+      }
+    }, executor);
+  }
+
+  /**
+   * Method to wait for memory, load a picture and run a task on it.  The
+   * extra memory needed while decoding is given back once the picture is
+   * loaded and the rest when the task is done.  A picture bigger than
+   * the whole budget counts as the whole budget so it can still run (by
+   * itself).
+   * @param fileName the name of the file to load the picture from
+   * @param task the code to run on the loaded picture
+   * @return the result of the task
+   * @throws IOException if the picture can't be loaded
+   * @throws InterruptedException if the thread is interrupted while
+   * waiting for memory
+   */
+  private <T> T run(String fileName, Function<Picture,T> task)
+    throws IOException, InterruptedException
+  {
+    long picturePermits = getPermits(fileName);
+    int permits = (int) Math.min(budget, picturePermits * 2);
+    admission.acquire(permits);
+    try {
+      Picture picture;
+      openFiles.acquire();
+      try {
+        picture = new Picture(new File(fileName));
+      } finally {
+        openFiles.release();
+      }
+
+      // only the picture itself is left in memory now
+      int decodePermits = permits - (int) Math.min(permits, picturePermits);
+      admission.release(decodePermits);
+      permits -= decodePermits;
+      return task.apply(picture);
+    } finally {
+      admission.release(permits);
+    }
+  }
+
+  /**
+   * Method to stop taking new tasks and wait for the submitted ones to
+   * finish.  If the thread is interrupted while waiting this returns
+   * early with the thread still interrupted.
+   */
+  public void close()
+  {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
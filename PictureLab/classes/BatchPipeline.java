@@ -0,0 +1,524 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+
+/**
+ * Class that runs a recipe of filters on every picture in a directory
+ * and writes the results to another directory.  The work is done in
+ * three stages that each have their own threads: decoding the files,
+ * running the recipe, and encoding the results.  The stages are joined
+ * by bounded queues so that a fast stage waits for a slow one instead
+ * of filling up memory, and the disk and the processors are kept busy
+ * at the same time.  For example:
+ * <pre>
+ *   new BatchPipeline(new File("in"), new File("out"),
+ *                     picture -> picture.chain().grayscale().sepia().apply()).run();
+ * </pre>
+ * or from the command line:
+ * <pre>
+ *   java BatchPipeline in out grayscale mirrorVertical
+ * </pre>
+ */
+public class BatchPipeline
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the item that tells a stage there is no more work */
+  private static final Item END = new Item(null, null);
+
+  /** the directory to read pictures from */
+  private File inputDirectory;
+
+  /** the directory to write pictures to */
+  private File outputDirectory;
+
+  /** the recipe to run on each picture */
+  private Consumer<Picture> recipe;
+
+  /** the format to write (null to use the format of each input file) */
+  private String outputFormat;
+
+  /** the encoder to write with (null to use the default settings) */
+  private PictureEncoder encoder;
+
+  /** the number of decoding threads */
+  private int decodeThreads;
+
+  /** the number of processing threads */
+  private int processThreads;
+
+  /** the number of encoding threads */
+  private int encodeThreads;
+
+  /** the most pictures waiting between two stages */
+  private int queueSize = 16;
+
+  /** the number of pictures written by the last run */
+  private AtomicInteger written = new AtomicInteger();
+
+  /** the files that failed in the last run and why */
+  private Map<File,Exception> failures =
+    Collections.synchronizedMap(new LinkedHashMap<File,Exception>());
+
+  /** the error that stopped the last run (null if it didn't stop) */
+  private AtomicReference<Throwable> fatal = new AtomicReference<Throwable>();
+
+  /** the thread that is running the pipeline */
+  private volatile Thread runner;
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that takes the directories and the recipe.  Decoding
+   * and processing get a thread for each processor and encoding gets
+   * half as many.
+   * @param inputDirectory the directory to read pictures from
+   * @param outputDirectory the directory to write pictures to
+   * @param recipe the code to run on each picture
+   */
+  public BatchPipeline(File inputDirectory, File outputDirectory,
+                       Consumer<Picture> recipe)
+  {
+    this.inputDirectory = inputDirectory;
+    this.outputDirectory = outputDirectory;
+    this.recipe = recipe;
+    int processors = Runtime.getRuntime().availableProcessors();
+    decodeThreads = processors;
+    processThreads = processors;
+    encodeThreads = Math.max(1, processors / 2);
+  }
+
+  /**
+   * A constructor that takes the directories and a filter chain to run
+   * on each picture
+   * @param inputDirectory the directory to read pictures from
+   * @param outputDirectory the directory to write pictures to
+   * @param chain the chain of filters to apply to each picture
+   */
+  public BatchPipeline(File inputDirectory, File outputDirectory,
+                       FilterChain chain)
+  {
+    this(inputDirectory, outputDirectory, picture -> chain.applyTo(picture));
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to make a recipe that calls Picture methods that take no
+   * arguments one after the other, like "grayscale" or "mirrorVertical"
+   * @param methodNames the names of the methods to call in order
+   * @return the recipe
+   * @throws IllegalArgumentException if there is no such method
+   */
+  public static Consumer<Picture> recipe(String... methodNames)
+  {
+    final Method[] methods = new Method[methodNames.length];
+    for (int i = 0; i < methodNames.length; i++)
+    {
+      try {
+        methods[i] = Picture.class.getMethod(methodNames[i]);
+      } catch (NoSuchMethodException ex) {
+        throw new IllegalArgumentException("Picture has no method " +
+                                           methodNames[i] + "()");
+      }
+    }
+    return picture -> {
+      for (Method method : methods)
+      {
+        try {
+          method.invoke(picture);
+        } catch (InvocationTargetException ex) {
+          if (ex.getCause() instanceof RuntimeException)
+            throw (RuntimeException) ex.getCause();
+          throw new IllegalStateException(ex.getCause());
+        } catch (IllegalAccessException ex) {
+          throw new IllegalStateException(ex);
+        }
+      }
+    };
+  }
+
+  /**
+   * Method to set the format to write the pictures in.  If two files
+   * would then be written with the same name (like a.jpg and a.png) only
+   * the first is written and the other is recorded as a failure.
+   * @param format the format like "png" or "jpg" (null to use the
+   * format of each input file)
+   */
+  public void setOutputFormat(String format) { outputFormat = format; }
+
+  /**
+   * Method to set the encoder to write the pictures with, so the
+   * quality and compression can be picked.  The pictures are written
+   * in the format of the encoder.
+   * @param encoder the encoder (null to use the default settings)
+   */
+  public void setEncoder(PictureEncoder encoder)
+  {
+    this.encoder = encoder;
+    if (encoder != null)
+      outputFormat = encoder.getFormat();
+  }
+
+  /**
+   * Method to set the number of threads for each stage
+   * @param decode the number of threads that decode files
+   * @param process the number of threads that run the recipe
+   * @param encode the number of threads that encode and write files
+   */
+  public void setThreads(int decode, int process, int encode)
+  {
+    if (decode < 1 || process < 1 || encode < 1)
+      throw new IllegalArgumentException("each stage needs a thread");
+    decodeThreads = decode;
+    processThreads = process;
+    encodeThreads = encode;
+  }
+
+  /**
+   * Method to set how many pictures can wait between two stages.  Each
+   * waiting picture is decoded in memory so this limits the memory used.
+   * @param size the most pictures waiting between two stages
+   */
+  public void setQueueSize(int size)
+  {
+    if (size < 1)
+      throw new IllegalArgumentException("the queue size must be at least 1");
+    queueSize = size;
+  }
+
+  /**
+   * Method to get the files that failed in the last run
+   * @return a map from each file that failed to the reason it failed
+   */
+  public Map<File,Exception> getFailures()
+  {
+    synchronized (failures)
+    {
+      return new LinkedHashMap<File,Exception>(failures);
+    }
+  }
+
+  /**
+   * Method to run the recipe on all the pictures in the input directory.
+   * A picture that fails is recorded (see getFailures) and the others
+   * go on, but an Error (like running out of memory) stops every stage
+   * and is thrown from here.
+   * @return the number of pictures written
+   * @throws IOException if the directories can't be used
+   * @throws InterruptedException if the thread is interrupted while
+   * waiting for the stages to finish
+   */
+  public int run() throws IOException, InterruptedException
+  {
+    File[] files = listPictures();
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs())
+      throw new IOException("could not make " + outputDirectory);
+    written.set(0);
+    failures.clear();
+    fatal.set(null);
+    List<File> toRun = skipClashingOutputs(files);
+    runner = Thread.currentThread();
+
+    BlockingQueue<Item> toDecode = new ArrayBlockingQueue<Item>(queueSize);
+    BlockingQueue<Item> toProcess = new ArrayBlockingQueue<Item>(queueSize);
+    BlockingQueue<Item> toEncode = new ArrayBlockingQueue<Item>(queueSize);
+
+    ExecutorService decoders = startStage("decode", decodeThreads,
+                                          toDecode, toProcess,
+                                          processThreads, this::decode);
+    ExecutorService processors = startStage("process", processThreads,
+                                            toProcess, toEncode,
+                                            encodeThreads, this::process);
+    ExecutorService encoders = startStage("encode", encodeThreads,
+                                          toEncode, null, 0, this::encode);
+    List<ExecutorService> stages = Arrays.asList(decoders, processors, encoders);
+    try {
+      // feed the files to the first stage and then tell it to stop
+      for (File file : toRun)
+        toDecode.put(new Item(file, null));
+      for (int i = 0; i < decodeThreads; i++)
+        toDecode.put(END);
+      for (ExecutorService stage : stages)
+      {
+        stage.shutdown();
+        stage.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException ex) {
+      // this thread was interrupted or a stage failed so stop them all
+      fatal.compareAndSet(null, ex);
+      for (ExecutorService stage : stages)
+        stage.shutdownNow();
+      try {
+        for (ExecutorService stage : stages)
+          stage.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException again) {
+        Thread.currentThread().interrupt();
+      }
+    } finally {
+      runner = null;
+    }
+    Throwable cause = fatal.get();
+    if (cause instanceof Error)
+      throw (Error) cause;
+    if (cause instanceof InterruptedException)
+      throw (InterruptedException) cause;
+    return written.get();
+  }
+
+  /**
+   * Method to stop a run because a stage can't go on.  The thread
+   * running the pipeline is interrupted so it stops all the stages.
+   * @param cause the reason the run has to stop
+   */
+  private void abort(Throwable cause)
+  {
+    Thread thread = runner;
+    if (fatal.compareAndSet(null, cause) && thread != null)
+      thread.interrupt();
+  }
+
+  /**
+   * Method to find the files in the input directory that can be read
+   * as pictures
+   * @return the files sorted by name
+   * @throws IOException if the input directory can't be listed
+   */
+  private File[] listPictures() throws IOException
+  {
+    final Set<String> suffixes = new HashSet<String>();
+    for (String suffix : ImageIO.getReaderFileSuffixes())
+      suffixes.add(suffix.toLowerCase());
+    File[] files = inputDirectory.listFiles(file -> {
+      String name = file.getName();
+      int posDot = name.lastIndexOf('.');
+      return file.isFile() && posDot >= 0 &&
+        suffixes.contains(name.substring(posDot + 1).toLowerCase());
+    });
+    if (files == null)
+      throw new IOException("could not list " + inputDirectory);
+    Arrays.sort(files);
+    return files;
+  }
+
+  /**
+   * Method to find the files that would be written to the same output
+   * file as an earlier file, like a.jpg and a.png when writing png.
+   * Those files are recorded as failures instead of one silently
+   * writing over the other.
+   * @param files the input files sorted by name
+   * @return the files that can be run
+   */
+  private List<File> skipClashingOutputs(File[] files)
+  {
+    Map<String,File> outputs = new HashMap<String,File>();
+    List<File> toRun = new ArrayList<File>(files.length);
+    for (File file : files)
+    {
+      String name = getOutputName(file);
+      File other = outputs.putIfAbsent(name.toLowerCase(), file);
+      if (other == null)
+        toRun.add(file);
+      else
+        failures.put(file, new IOException(name + " is already written for " +
+                                           other.getName()));
+    }
+    return toRun;
+  }
+
+  /**
+   * Method to get the name to write the picture of a file as
+   * @param file the input file
+   * @return the same name with the output format as the extension (if
+   * there is an output format)
+   */
+  private String getOutputName(File file)
+  {
+    String name = file.getName();
+    if (outputFormat != null)
+    {
+      int posDot = name.lastIndexOf('.');
+      name = name.substring(0, posDot + 1) + outputFormat;
+    }
+    return name;
+  }
+
+  /**
+   * Method to start the threads for a stage.  Each thread takes items
+   * from its queue and does the work on them until it gets the end item.
+   * The last thread to finish puts an end item on the next queue for
+   * each thread of the next stage, even if the thread ended with an
+   * Error.  A failed item is recorded and dropped.
+   * @param name the name of the stage for its threads
+   * @param threads the number of threads
+   * @param in the queue to take items from
+   * @param out the queue to put the results on (null for the last stage)
+   * @param nextThreads the number of threads in the next stage
+   * @param work the work to do on each item
+   * @return the threads of the stage
+   */
+  private ExecutorService startStage(String name, int threads,
+                                     final BlockingQueue<Item> in,
+                                     final BlockingQueue<Item> out,
+                                     final int nextThreads,
+                                     final Stage work)
+  {
+    final AtomicInteger running = new AtomicInteger(threads);
+    final AtomicInteger count = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads, task ->
+      new Thread(task, "BatchPipeline " + name + "-" + count.incrementAndGet()));
+    for (int i = 0; i < threads; i++)
+    {
+      pool.execute(() -> {
+        try {
+          for (Item item = in.take(); item != END; item = in.take())
+          {
+            try {
+              Item result = work.run(item);
+              if (out != null)
+                out.put(result);
+            } catch (InterruptedException ex) {
+              throw ex;
+            } catch (Exception ex) {
+              failures.put(item.file, ex);
+            }
+          }
+        } catch (InterruptedException | Error ex) {
+          abort(ex);
+        } finally {
+          // the next stage always has to be told to stop unless the run
+          // is being stopped, or it would wait forever
+          if (running.decrementAndGet() == 0 && out != null &&
+              fatal.get() == null)
+          {
+            try {
+              for (int j = 0; j < nextThreads; j++)
+                out.put(END);
+            } catch (InterruptedException ex) {
+              abort(ex);
+            }
+          }
+        }
+      });
+    }
+    return pool;
+  }
+
+  /**
+   * Method to decode the file of an item.  Each file is read only once
+   * so the image cache isn't used.
+   * @param item the item with the file
+   * @return the item with the decoded picture
+   * @throws IOException if the file can't be decoded
+   */
+  private Item decode(Item item) throws IOException
+  {
+    return new Item(item.file, new Picture(item.file));
+  }
+
+  /**
+   * Method to run the recipe on the picture of an item
+   * @param item the item with the picture
+   * @return the item with the changed picture
+   */
+  private Item process(Item item)
+  {
+    recipe.accept(item.picture);
+    return item;
+  }
+
+  /**
+   * Method to write the picture of an item to the output directory with
+   * the same name as its file (and the output format if there is one)
+   * @param item the item with the picture
+   * @return the item
+   * @throws IOException if the picture can't be written
+   */
+  private Item encode(Item item) throws IOException
+  {
+    String name = getOutputName(item.file);
+    item.picture.writeOrFail(new File(outputDirectory, name).getPath(),
+                             encoder);
+    written.incrementAndGet();
+    return item;
+  }
+
+  /**
+   * Method to run the pipeline from the command line
+   * @param args the input directory, the output directory, and the
+   * names of the Picture methods to run on each picture
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length < 3)
+    {
+      System.out.println("usage: java BatchPipeline inputDirectory " +
+                         "outputDirectory method [method ...]");
+      return;
+    }
+    BatchPipeline pipeline =
+      new BatchPipeline(new File(args[0]), new File(args[1]),
+                        recipe(Arrays.copyOfRange(args, 2, args.length)));
+    long start = System.nanoTime();
+    int count = pipeline.run();
+    System.out.println("Wrote " + count + " pictures in " +
+                       (System.nanoTime() - start) / 1000000 + " ms");
+    for (Map.Entry<File,Exception> failure : pipeline.getFailures().entrySet())
+      System.out.println("Failed " + failure.getKey() + ": " +
+                         failure.getValue());
+  }
+
+  //////////////////////// inner types ///////////////////////////////
+
+  /**
+   * Class for a file and its picture as it moves through the stages
+   */
+  private static class Item
+  {
+    /** the input file */
+    private final File file;
+    /** the picture (null until it is decoded) */
+    private final Picture picture;
+
+    private Item(File file, Picture picture)
+    {
+      this.file = file;
+      this.picture = picture;
+    }
+  }
+
+  /**
+   * Interface for the work done by a stage on each item
+   */
+  private interface Stage
+  {
+    /**
+     * Method to do the work on an item
+     * @param item the item to work on
+     * @return the item to pass to the next stage
+     * @throws Exception if the work fails
+     */
+    public Item run(Item item) throws Exception;
+  }
+
+}
@@ -0,0 +1,179 @@
+import java.awt.Rectangle;
+
+/**
+ * Class that copies rectangular regions of pixels from one picture to
+ * another (or to another place in the same picture).  The regions are
+ * clipped to both pictures so any part that would be outside of either
+ * picture is just skipped.  The colors are copied but each destination
+ * pixel keeps its alpha, like Pixel.setColor.
+ *
+ * Rows are copied with System.arraycopy when both pictures keep their
+ * pixels in int arrays, otherwise they are copied a band at a time with
+ * getBasicPixels and setBasicPixels.  Copies within one picture work
+ * even when the regions overlap.
+ */
+public class Blitter
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the processor that runs the bands (null to use the calling thread) */
+  private PixelProcessor processor;
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that takes no arguments.  It runs big copies in
+   * parallel on the default pixel processor.
+   */
+  public Blitter()
+  {
+    this(PixelProcessor.getDefault());
+  }
+
+  /**
+   * A constructor that takes the processor to run the bands on
+   * @param processor the processor to use (null to do all the copying
+   * on the calling thread)
+   */
+  public Blitter(PixelProcessor processor)
+  {
+    this.processor = processor;
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to copy all of the source picture into the destination
+   * picture with its top left corner at the given location
+   * @param source the picture to copy from
+   * @param dest the picture to copy to
+   * @param destX the x in the destination for the left of the source
+   * @param destY the y in the destination for the top of the source
+   * @return the region of the destination that was changed (it is
+   * empty if none of the source lands in the destination)
+   */
+  public Rectangle copy(DigitalPicture source, DigitalPicture dest,
+                        int destX, int destY)
+  {
+    return copy(source,0,0,source.getWidth(),source.getHeight(),
+                dest,destX,destY);
+  }
+
+  /**
+   * Method to copy a region of the source picture into the destination
+   * picture.  The region is clipped to both pictures.
+   * @param source the picture to copy from
+   * @param sourceX the x of the left of the region in the source
+   * @param sourceY the y of the top of the region in the source
+   * @param width the width of the region
+   * @param height the height of the region
+   * @param dest the picture to copy to (can be the source)
+   * @param destX the x in the destination for the left of the region
+   * @param destY the y in the destination for the top of the region
+   * @return the region of the destination that was changed (it is
+   * empty if none of the region lands in the destination)
+   */
+  public Rectangle copy(DigitalPicture source, int sourceX, int sourceY,
+                        int width, int height, DigitalPicture dest,
+                        int destX, int destY)
+  {
+    // clip the region to the source picture
+    if (sourceX < 0) { destX -= sourceX; width += sourceX; sourceX = 0; }
+    if (sourceY < 0) { destY -= sourceY; height += sourceY; sourceY = 0; }
+    width = Math.min(width, source.getWidth() - sourceX);
+    height = Math.min(height, source.getHeight() - sourceY);
+
+    // clip the region to the destination picture
+    if (destX < 0) { sourceX -= destX; width += destX; destX = 0; }
+    if (destY < 0) { sourceY -= destY; height += destY; destY = 0; }
+    width = Math.min(width, dest.getWidth() - destX);
+    height = Math.min(height, dest.getHeight() - destY);
+
+    if (width <= 0 || height <= 0)
+      return new Rectangle(destX,destY,0,0);
+
+    Rectangle result = new Rectangle(destX,destY,width,height);
+    if (source == dest)
+    {
+      if (sourceX != destX || sourceY != destY)
+        copyWithin(dest,sourceX,sourceY,result);
+      return result;
+    }
+
+    final int dx = sourceX - destX;
+    final int dy = sourceY - destY;
+    final int rowWidth = width;
+    final int left = destX;
+    final int top = destY;
+    PixelProcessor.BandAction action = (startRow, endRow) ->
+      copyBand(source,left + dx,top + dy + startRow,rowWidth,
+               endRow - startRow,dest,left,top + startRow);
+    if (processor == null)
+      PixelProcessor.forEachBandInOrder(width,height,action);
+    else
+      processor.forEachBand(width,height,action);
+    return result;
+  }
+
+  /**
+   * Method to copy a region within one picture.  When the region moves
+   * down the rows are copied from the bottom up so that no row is
+   * overwritten before it has been copied.  This is done on the calling
+   * thread since the bands depend on each other.
+   * @param picture the picture
+   * @param sourceX the x of the left of the region to copy
+   * @param sourceY the y of the top of the region to copy
+   * @param destRegion the place to copy the region to (already clipped)
+   */
+  private void copyWithin(DigitalPicture picture, int sourceX, int sourceY,
+                          Rectangle destRegion)
+  {
+    int width = destRegion.width;
+    if (destRegion.y <= sourceY)
+    {
+      for (int row = 0; row < destRegion.height; row++)
+        copyBand(picture,sourceX,sourceY + row,width,1,
+                 picture,destRegion.x,destRegion.y + row);
+    }
+    else
+    {
+      for (int row = destRegion.height - 1; row >= 0; row--)
+        copyBand(picture,sourceX,sourceY + row,width,1,
+                 picture,destRegion.x,destRegion.y + row);
+    }
+  }
+
+  /**
+   * Method to copy a band of rows that is inside both pictures
+   * @param source the picture to copy from
+   * @param sourceX the x of the left of the band in the source
+   * @param sourceY the y of the top of the band in the source
+   * @param width the width of the band
+   * @param height the number of rows in the band
+   * @param dest the picture to copy to
+   * @param destX the x of the left of the band in the destination
+   * @param destY the y of the top of the band in the destination
+   */
+  private static void copyBand(DigitalPicture source, int sourceX,
+                               int sourceY, int width, int height,
+                               DigitalPicture dest, int destX, int destY)
+  {
+    // copy straight between the int arrays if possible
+    if (source instanceof SimplePicture && dest instanceof SimplePicture &&
+        ((SimplePicture) dest).copyPixels((SimplePicture) source,sourceX,
+                                          sourceY,width,height,destX,destY))
+      return;
+
+    // the whole source band is read before any of it is written so a
+    // band can overlap itself
+    int size = width * height;
+    int[] values = PixelProcessor.getBandBuffer(size * 2);
+    source.getBasicPixels(sourceX,sourceY,width,height,values,0,width);
+    dest.getBasicPixels(destX,destY,width,height,values,size,width);
+    for (int i = 0; i < size; i++)
+      values[size + i] = Pixel.withColor(values[size + i],values[i]);
+    dest.setBasicPixels(destX,destY,width,height,values,size,width);
+  }
+
+}
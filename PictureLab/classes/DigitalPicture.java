@@ -1,5 +1,6 @@
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Interface to describe a digital picture.  A digital picture can have an 
@@ -22,9 +23,17 @@ public interface DigitalPicture
   public BufferedImage getBufferedImage(); // get the buffered image
   public int getBasicPixel(int x, int y); // get the pixel information as an int   
   public void setBasicPixel(int x, int y, int rgb); // set the pixel information
+  public void updateBasicPixel(int x, int y, IntUnaryOperator operation); // change the pixel information
+  public int[] getBasicPixels(int x, int y, int width, int height, 
+                              int[] values, int offset, int scansize); // get a region of pixel information
+  public void setBasicPixels(int x, int y, int width, int height, 
+                             int[] values, int offset, int scansize); // set a region of pixel information
+  public int[] getBasicPixelRow(int y, int[] values); // get a row of pixel information
+  public void setBasicPixelRow(int y, int[] values); // set a row of pixel information
   public Pixel getPixel(int x, int y); // get the pixel information as an object
   public Pixel[] getPixels(); // get all pixels in row-major order
   public Pixel[][] getPixels2D(); // get 2-D array of pixels in row-major order
+  public void forEachPixel(PixelVisitor visitor); // visit all pixels in row-major order
   public void load(Image image); // load the image into the picture
   public boolean load(String fileName); // load the picture from a file
   public void show(); // show the picture 
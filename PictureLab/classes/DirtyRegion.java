@@ -0,0 +1,183 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class that keeps track of which parts of a picture have changed.
+ * The picture is split into square tiles and a tile is marked when any
+ * pixel in it is written.  The changed tiles are turned into as few
+ * rectangles as possible when they are taken, so a display only has to
+ * repaint the parts of the picture that changed.
+ *
+ * Marking and taking are safe from many threads at once.  Each tile
+ * has its own atomic flag and taking clears each flag as it reads it,
+ * so a tile marked while the regions are being taken is either in the
+ * regions returned or is still marked for the next take.
+ */
+public class DirtyRegion
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the width and height of a tile (a power of 2) */
+  public static final int TILE_SIZE = 64;
+
+  /** the number of bits to shift a coordinate by to get its tile */
+  private static final int TILE_SHIFT = 6;
+
+  /** the width of the picture */
+  private int width;
+
+  /** the height of the picture */
+  private int height;
+
+  /** the number of tile columns */
+  private int columns;
+
+  /** the number of tile rows */
+  private int rows;
+
+  /** 1 for each tile that has changed, in row-major order */
+  private AtomicIntegerArray dirty;
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that takes the size of the picture.  Nothing is
+   * marked as changed.
+   * @param width the width of the picture
+   * @param height the height of the picture
+   */
+  public DirtyRegion(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+    columns = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+    rows = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+    dirty = new AtomicIntegerArray(columns * rows);
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to mark one pixel as changed.  The location must be in the
+   * picture.
+   * @param x the x coordinate of the pixel
+   * @param y the y coordinate of the pixel
+   */
+  public void mark(int x, int y)
+  {
+    markTile((y >> TILE_SHIFT) * columns + (x >> TILE_SHIFT));
+  }
+
+  /**
+   * Method to mark a rectangle as changed.  The part outside of the
+   * picture is ignored.
+   * @param x the x coordinate of the top left of the rectangle
+   * @param y the y coordinate of the top left of the rectangle
+   * @param w the width of the rectangle
+   * @param h the height of the rectangle
+   */
+  public void mark(int x, int y, int w, int h)
+  {
+    int left = Math.max(0, x);
+    int top = Math.max(0, y);
+    int right = Math.min(width, x + w);
+    int bottom = Math.min(height, y + h);
+    if (left >= right || top >= bottom)
+      return;
+    int lastColumn = (right - 1) >> TILE_SHIFT;
+    int lastRow = (bottom - 1) >> TILE_SHIFT;
+    for (int row = top >> TILE_SHIFT; row <= lastRow; row++)
+      for (int column = left >> TILE_SHIFT; column <= lastColumn; column++)
+        markTile(row * columns + column);
+  }
+
+  /**
+   * Method to mark one tile.  The flag is read first so marking a tile
+   * that is already marked (the usual case when pixels are set one at a
+   * time) doesn't have to write to shared memory.
+   * @param index the index of the tile
+   */
+  private void markTile(int index)
+  {
+    if (dirty.get(index) == 0)
+      dirty.set(index, 1);
+  }
+
+  /**
+   * Method to mark the whole picture as changed
+   */
+  public void markAll()
+  {
+    mark(0, 0, width, height);
+  }
+
+  /**
+   * Method to check if anything has changed
+   * @return true if no tile is marked
+   */
+  public boolean isEmpty()
+  {
+    for (int i = 0; i < dirty.length(); i++)
+      if (dirty.get(i) != 0)
+        return false;
+    return true;
+  }
+
+  /**
+   * Method to get the changed parts of the picture and clear the marks.
+   * Marked tiles next to each other in a row are joined and then rows
+   * of tiles with the same columns are joined.
+   * @return the rectangles that changed (clipped to the picture)
+   */
+  public synchronized List<Rectangle> takeRegions()
+  {
+    List<Rectangle> regions = new ArrayList<Rectangle>();
+
+    // the rectangles that reach the row above, by first column
+    Rectangle[] open = new Rectangle[columns];
+    for (int row = 0; row < rows; row++)
+    {
+      Rectangle[] next = new Rectangle[columns];
+      int column = 0;
+      while (column < columns)
+      {
+        if (dirty.getAndSet(row * columns + column, 0) == 0)
+        {
+          column++;
+          continue;
+        }
+
+        // find the run of marked tiles and clear them
+        int first = column++;
+        while (column < columns &&
+               dirty.getAndSet(row * columns + column, 0) != 0)
+          column++;
+        int x = first << TILE_SHIFT;
+        int y = row << TILE_SHIFT;
+        int w = Math.min(width, column << TILE_SHIFT) - x;
+        int h = Math.min(height, (row + 1) << TILE_SHIFT) - y;
+
+        // grow the rectangle above if it has the same columns
+        Rectangle above = open[first];
+        if (above != null && above.width == w)
+        {
+          above.height += h;
+          open[first] = null;
+          next[first] = above;
+        }
+        else
+        {
+          Rectangle region = new Rectangle(x, y, w, h);
+          regions.add(region);
+          next[first] = region;
+        }
+      }
+      open = next;
+    }
+    return regions;
+  }
+
+}
@@ -0,0 +1,296 @@
+/**
+ * Class that finds edges in a picture by comparing the color of each 
+ * pixel to its neighbors.  Pixels where the color changes by more than
+ * the edge distance become white and the rest become black.  The colors
+ * are always read from the picture as it was before any pixel was 
+ * changed, so the result doesn't depend on the order the pixels are 
+ * done in and the rows can be done in parallel.
+ * Distances are compared squared so no square roots are needed.
+ */
+public class EdgeDetector
+{
+  
+  ////////////////////////// fields ///////////////////////////////////
+  
+  /** the ways of finding edges */
+  public enum Mode 
+  {
+    /** compare each pixel to the one on its right (the last column is kept) */
+    HORIZONTAL,
+    /** compare each pixel to the one below it (the last row is kept) */
+    VERTICAL,
+    /** 
+     * use the Sobel operator on each color.  The gradient is divided 
+     * by 4 so a step in color of d has a gradient of d.
+     */
+    SOBEL
+  }
+  
+  /** the color distance above which there is an edge */
+  private int edgeDist;
+  
+  /** the way to find edges */
+  private Mode mode;
+  
+  ////////////////////// constructors /////////////////////////////////
+  
+  /**
+   * A constructor that takes the edge distance and the mode
+   * @param edgeDist the color distance above which there is an edge
+   * @param mode the way to find edges
+   */
+  public EdgeDetector(int edgeDist, Mode mode)
+  {
+    this.edgeDist = edgeDist;
+    this.mode = mode;
+  }
+  
+  ///////////////////////// methods //////////////////////////////
+  
+  /**
+   * Method to get the edge distance
+   * @return the color distance above which there is an edge
+   */
+  public int getEdgeDist() { return edgeDist; }
+  
+  /**
+   * Method to get the mode
+   * @return the way edges are found
+   */
+  public Mode getMode() { return mode; }
+  
+  /**
+   * Method to replace a picture with its edges
+   * @param picture the picture to find the edges in and change
+   */
+  public void apply(DigitalPicture picture)
+  {
+    apply(picture, picture);
+  }
+  
+  /**
+   * Method to find the edges in the source picture and write them to 
+   * the destination picture.  The pictures can be the same picture.
+   * The rows are split into a few bands that are done in parallel and
+   * each band goes down its rows keeping only the rows the edges need
+   * (the row and the ones above and below it), so big (mapped) pictures
+   * are never copied onto the heap.  When the pictures are the same the
+   * rows on each side of the band edges are saved first, since the band
+   * next to them may change them.
+   * @param source the picture to find the edges in
+   * @param dest the picture to write the edges to (the same size as
+   * the source)
+   */
+  public void apply(final DigitalPicture source, final DigitalPicture dest)
+  {
+    final int width = source.getWidth();
+    final int height = source.getHeight();
+    if (dest.getWidth() != width || dest.getHeight() != height)
+      throw new IllegalArgumentException("the pictures must be the same size");
+    if (height == 0)
+      return;
+    
+    // split the rows into a few bands for each thread
+    PixelProcessor processor = PixelProcessor.getDefault();
+    int bands = Math.min(height, processor.getPool().getParallelism() * 4);
+    final int rowsPerBand = (height + bands - 1) / bands;
+    final int bandCount = (height + rowsPerBand - 1) / rowsPerBand;
+    
+    // save the rows just outside each band if they are going to change
+    final int[] edgeRows;
+    if (source == dest)
+    {
+      edgeRows = new int[2 * bandCount * width];
+      for (int band = 0; band < bandCount; band++)
+      {
+        int startRow = band * rowsPerBand;
+        int endRow = Math.min(startRow + rowsPerBand, height);
+        if (startRow > 0)
+          source.getBasicPixels(0,startRow - 1,width,1,
+                                edgeRows,2 * band * width,width);
+        if (endRow < height)
+          source.getBasicPixels(0,endRow,width,1,
+                                edgeRows,(2 * band + 1) * width,width);
+      }
+    }
+    else
+      edgeRows = null;
+    
+    int bandPixels = (int) Math.min(Integer.MAX_VALUE, (long) width * rowsPerBand);
+    processor.forEachBand(bandPixels, bandCount, (startBand, endBand) -> {
+      for (int band = startBand; band < endBand; band++)
+        findEdges(source, dest, edgeRows, band, band * rowsPerBand,
+                  Math.min((band + 1) * rowsPerBand, height));
+    });
+  }
+  
+  /**
+   * Method to find the edges in a band of rows.  Only three rows of the
+   * source are kept at a time, in a ring.
+   * @param source the picture to find the edges in
+   * @param dest the picture to write the edges to
+   * @param edgeRows the saved rows just outside the bands (null if the
+   * source isn't changed)
+   * @param band the number of the band
+   * @param startRow the first row in the band
+   * @param endRow the row just after the last row in the band
+   */
+  private void findEdges(DigitalPicture source, DigitalPicture dest,
+                         int[] edgeRows, int band, int startRow, int endRow)
+  {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] values = PixelProcessor.getBandBuffer(4 * width);
+    int result = 3 * width;
+    boolean needAbove = (mode == Mode.SOBEL);
+    boolean needBelow = (mode != Mode.HORIZONTAL);
+    
+    if (needAbove && startRow > 0)
+      readRow(source, edgeRows, 2 * band, startRow - 1, values);
+    for (int row = startRow; row < endRow; row++)
+    {
+      // the row was read as the row below unless it is the first one
+      if (row == startRow || !needBelow)
+        readRow(source, null, 0, row, values);
+      if (needBelow && row + 1 < height)
+        readRow(source, (row + 1 < endRow) ? null : edgeRows, 2 * band + 1,
+                row + 1, values);
+      int middle = (row % 3) * width;
+      int up = (row > 0) ? ((row - 1) % 3) * width : middle;
+      int down = (row + 1 < height) ? ((row + 1) % 3) * width : middle;
+      findEdges(values, up, middle, down, width, row == height - 1,
+                values, result);
+      dest.setBasicPixels(0,row,width,1,values,result,width);
+    }
+  }
+  
+  /**
+   * Method to read a row of the source into its place in the ring of rows
+   * @param source the picture to read from
+   * @param edgeRows the saved rows just outside the bands, or null to
+   * read the row from the source
+   * @param edgeRow the index of the saved row to use
+   * @param row the row to read
+   * @param values the ring of rows
+   */
+  private static void readRow(DigitalPicture source, int[] edgeRows,
+                              int edgeRow, int row, int[] values)
+  {
+    int width = source.getWidth();
+    if (edgeRows == null)
+      source.getBasicPixels(0,row,width,1,values,(row % 3) * width,width);
+    else
+      System.arraycopy(edgeRows,edgeRow * width,values,(row % 3) * width,width);
+  }
+  
+  /**
+   * Method to find the edges in one row
+   * @param values the pixel values of the rows around this row
+   * @param up the index of the row above (the row itself at the top)
+   * @param middle the index of the row
+   * @param down the index of the row below (the row itself at the
+   * bottom)
+   * @param width the width of the picture
+   * @param lastRow true if this is the last row of the picture
+   * @param result the array to put the new values in
+   * @param offset the index in the result of the first pixel in the row
+   */
+  private void findEdges(int[] values, int up, int middle, int down,
+                         int width, boolean lastRow, int[] result, int offset)
+  {
+    // a negative distance means every pixel is an edge and the Sobel 
+    // gradient is 4 times the step so it is compared to 16 d^2
+    long limit = (long) edgeDist * edgeDist;
+    if (edgeDist < 0)
+      limit = -1;
+    else if (mode == Mode.SOBEL)
+      limit = 16 * limit;
+    
+    for (int col = 0; col < width; col++)
+    {
+      int value = values[middle + col];
+      long distance;
+      if (mode == Mode.HORIZONTAL)
+      {
+        if (col == width - 1)
+        {
+          result[offset + col] = value;
+          continue;
+        }
+        distance = colorDistanceSquared(value, values[middle + col + 1]);
+      }
+      else if (mode == Mode.VERTICAL)
+      {
+        if (lastRow)
+        {
+          result[offset + col] = value;
+          continue;
+        }
+        distance = colorDistanceSquared(value, values[down + col]);
+      }
+      else
+        distance = sobelSquared(values, up, middle, down, width, col);
+      
+      if (distance > limit)
+        result[offset + col] = Pixel.withColor(value, 0xffffff);
+      else
+        result[offset + col] = Pixel.withColor(value, 0);
+    }
+  }
+  
+  /**
+   * Method to get the square of the distance between two colors
+   * @param value1 a pixel value
+   * @param value2 another pixel value
+   * @return the squared distance between the colors
+   */
+  public static int colorDistanceSquared(int value1, int value2)
+  {
+    int redDistance = Pixel.getRed(value1) - Pixel.getRed(value2);
+    int greenDistance = Pixel.getGreen(value1) - Pixel.getGreen(value2);
+    int blueDistance = Pixel.getBlue(value1) - Pixel.getBlue(value2);
+    return redDistance * redDistance + greenDistance * greenDistance +
+      blueDistance * blueDistance;
+  }
+  
+  /**
+   * Method to get the square of the Sobel gradient at a pixel added up
+   * for the red, green, and blue.  Pixels off the edge of the picture 
+   * use the nearest pixel in the picture.
+   * @param values the pixel values of the rows around the pixel
+   * @param up the index of the row above (the row itself at the top)
+   * @param middle the index of the row of the pixel
+   * @param down the index of the row below (the row itself at the
+   * bottom)
+   * @param width the width of the picture
+   * @param col the column of the pixel
+   * @return the squared gradient
+   */
+  private static long sobelSquared(int[] values, int up, int middle,
+                                   int down, int width, int col)
+  {
+    int left = Math.max(col - 1, 0);
+    int right = Math.min(col + 1, width - 1);
+    
+    long total = 0;
+    for (int shift = 0; shift <= 16; shift += 8)
+    {
+      int topLeft = (values[up + left] >> shift) & 0xff;
+      int top = (values[up + col] >> shift) & 0xff;
+      int topRight = (values[up + right] >> shift) & 0xff;
+      int midLeft = (values[middle + left] >> shift) & 0xff;
+      int midRight = (values[middle + right] >> shift) & 0xff;
+      int bottomLeft = (values[down + left] >> shift) & 0xff;
+      int bottom = (values[down + col] >> shift) & 0xff;
+      int bottomRight = (values[down + right] >> shift) & 0xff;
+      
+      int gx = (topRight + 2 * midRight + bottomRight) - 
+        (topLeft + 2 * midLeft + bottomLeft);
+      int gy = (bottomLeft + 2 * bottom + bottomRight) - 
+        (topLeft + 2 * top + topRight);
+      total += gx * gx + gy * gy;
+    }
+    return total;
+  }
+  
+}
@@ -1,8 +1,6 @@
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
-import java.util.Properties;
 import java.io.*;
-import java.net.*;
   
 /**
  * A class to make working with a file chooser easier
@@ -23,13 +21,7 @@ public class FileChooser
    */
   public static String getMediaPath(String fileName) 
   {
-    String path = null;
-    String directory = getMediaDirectory();
-    boolean done = true;
-    
-    // get the full path
-    path = directory + fileName;
-    return path;
+    return MediaPath.getMediaPath(fileName);
   }
   
   /**
@@ -99,27 +91,7 @@ public class FileChooser
    */
   public static String getMediaDirectory() 
   {
-    String directory = null;
-    boolean done = false;
-    File dirFile = null;
-    
-    // try to find the images directory
-      try {
-        // get the URL for where we loaded this class 
-        Class currClass = Class.forName("FileChooser");
-        URL classURL = currClass.getResource("FileChooser.class");
-        URL fileURL = new URL(classURL,"../images/");
-        directory = fileURL.getPath();
-        directory = URLDecoder.decode(directory, "UTF-8");
-        dirFile = new File(directory);
-        if (dirFile.exists()) {
-          //setMediaPath(directory);
-          return directory;
-        }
-      } catch (Exception ex) {
-      }
-      
-      return directory;
+    return MediaPath.getMediaDirectory();
   }
   
 }
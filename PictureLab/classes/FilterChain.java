@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class that records a list of point operations and applies them all
+ * in one pass over a picture.  Each band of rows is read once, every
+ * operation is run on it while it is still in the cache, and it is 
+ * written back once, instead of reading and writing the whole picture
+ * for each filter.  For example:
+ * <pre>
+ *   picture.chain().grayscale().sepia().apply();
+ * </pre>
+ * A chain made without a picture can be applied to many pictures.
+ */
+public class FilterChain
+{
+  
+  ////////////////////////// fields ///////////////////////////////////
+  
+  /** the picture the chain applies to (may be null) */
+  private DigitalPicture picture;
+  
+  /** the operations in the order they are applied */
+  private List<PointOperation> operations = new ArrayList<PointOperation>();
+  
+  ////////////////////// constructors /////////////////////////////////
+  
+  /**
+   * A constructor that takes no arguments.  Use applyTo to apply the
+   * chain to a picture.
+   */
+  public FilterChain()
+  {
+  }
+  
+  /**
+   * A constructor that takes the picture to apply the chain to
+   * @param picture the picture that apply will change
+   */
+  public FilterChain(DigitalPicture picture)
+  {
+    this.picture = picture;
+  }
+  
+  ///////////////////////// methods //////////////////////////////
+  
+  /**
+   * Method to add an operation to the end of the chain
+   * @param operation the operation to add
+   * @return this chain so that calls can be strung together
+   */
+  public FilterChain add(PointOperation operation)
+  {
+    operations.add(operation);
+    return this;
+  }
+  
+  /**
+   * Method to add setting the blue to 0 to the chain
+   * @return this chain
+   */
+  public FilterChain zeroBlue() { return add(PointOperations.zeroBlue()); }
+  
+  /**
+   * Method to add setting the red and green to 0 to the chain
+   * @return this chain
+   */
+  public FilterChain keepOnlyBlue() { return add(PointOperations.keepOnlyBlue()); }
+  
+  /**
+   * Method to add negate to the chain
+   * @return this chain
+   */
+  public FilterChain negate() { return add(PointOperations.negate()); }
+  
+  /**
+   * Method to add grayscale to the chain
+   * @return this chain
+   */
+  public FilterChain grayscale() { return add(PointOperations.grayscale()); }
+  
+  /**
+   * Method to add fixUnderwater to the chain
+   * @return this chain
+   */
+  public FilterChain fixUnderwater() { return add(PointOperations.fixUnderwater()); }
+  
+  /**
+   * Method to add sepia to the chain
+   * @return this chain
+   */
+  public FilterChain sepia() { return add(PointOperations.sepia()); }
+  
+  /**
+   * Method to add moreRed to the chain
+   * @return this chain
+   */
+  public FilterChain moreRed() { return add(PointOperations.moreRed()); }
+  
+  /**
+   * Method to get the operations in this chain
+   * @return the operations in the order they are applied (this list
+   * can't be changed)
+   */
+  public List<PointOperation> getOperations()
+  {
+    return Collections.unmodifiableList(operations);
+  }
+  
+  /**
+   * Method to get the whole chain as one point operation
+   * @return an operation that applies each operation in turn
+   */
+  public PointOperation toOperation()
+  {
+    final PointOperation[] steps = 
+      operations.toArray(new PointOperation[operations.size()]);
+    return value -> {
+      for (PointOperation step : steps)
+        value = step.apply(value);
+      return value;
+    };
+  }
+  
+  /**
+   * Method to apply the chain to the picture it was made with
+   */
+  public void apply()
+  {
+    if (picture == null)
+      throw new IllegalStateException("the chain wasn't made with a picture");
+    applyTo(picture);
+  }
+  
+  /**
+   * Method to apply the chain to a picture in one pass using the 
+   * default PixelProcessor
+   * @param target the picture to change
+   */
+  public void applyTo(DigitalPicture target)
+  {
+    PixelProcessor.getDefault().apply(target, operations);
+  }
+  
+  /**
+   * Method to return a string with information about this chain
+   * @return a string with the number of operations
+   */
+  public String toString()
+  {
+    return "FilterChain with " + operations.size() + " operations";
+  }
+  
+}
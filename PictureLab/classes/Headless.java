@@ -0,0 +1,101 @@
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that decides if pictures can be shown in windows.  In headless
+ * mode show, explore and repaint don't open any windows (the window
+ * classes are never even loaded), so pictures can be processed on a
+ * computer without a display.  If a snapshot directory is set, each
+ * of those calls writes the picture there as a png file instead, so
+ * the results of a program like PictureTester can still be looked at.
+ *
+ * Headless mode is on when Java is headless (java.awt.headless=true or
+ * there is no display) or when the picturelab.headless system property
+ * is true, and it can be set with setHeadless.  The snapshot directory
+ * can be given in the picturelab.snapshots system property.
+ */
+public class Headless
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** true if pictures should not be shown in windows */
+  private static volatile boolean headless =
+    Boolean.getBoolean("picturelab.headless") ||
+    GraphicsEnvironment.isHeadless();
+
+  /** the directory to write snapshots to (null to not write them) */
+  private static volatile File snapshotDirectory =
+    (System.getProperty("picturelab.snapshots") == null) ? null :
+    new File(System.getProperty("picturelab.snapshots"));
+
+  /** the number of snapshots written, used to name them in order */
+  private static final AtomicInteger snapshotCount = new AtomicInteger();
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to check if pictures should not be shown in windows
+   * @return true if in headless mode
+   */
+  public static boolean isHeadless() { return headless; }
+
+  /**
+   * Method to turn headless mode on or off.  It can't be turned off if
+   * Java itself is headless.
+   * @param flag true to stop showing pictures in windows
+   */
+  public static void setHeadless(boolean flag)
+  {
+    headless = flag || GraphicsEnvironment.isHeadless();
+  }
+
+  /**
+   * Method to get the directory snapshots are written to
+   * @return the directory (null if snapshots aren't written)
+   */
+  public static File getSnapshotDirectory() { return snapshotDirectory; }
+
+  /**
+   * Method to set the directory to write snapshots to in headless mode
+   * @param directory the directory (null to not write snapshots)
+   */
+  public static void setSnapshotDirectory(File directory)
+  {
+    snapshotDirectory = directory;
+  }
+
+  /**
+   * Method to write a snapshot of a picture instead of showing it.  The
+   * file is named with a count, the title of the picture and what was
+   * asked for, like 0003-beach-explore.png.  Nothing is written if
+   * there is no snapshot directory.
+   * @param picture the picture
+   * @param action what was asked for (like "show" or "explore")
+   * @return true if a snapshot was written
+   */
+  public static boolean snapshot(DigitalPicture picture, String action)
+  {
+    File directory = snapshotDirectory;
+    if (directory == null)
+      return false;
+    if (!directory.isDirectory() && !directory.mkdirs())
+    {
+      System.out.println("Couldn't make the snapshot directory " + directory);
+      return false;
+    }
+
+    // use the title without any directories or extension
+    String title = (picture.getTitle() == null) ? "picture" :
+      new File(picture.getTitle()).getName();
+    int posDot = title.lastIndexOf('.');
+    if (posDot > 0)
+      title = title.substring(0, posDot);
+    title = title.replaceAll("[^A-Za-z0-9_-]", "_");
+    String name = String.format("%04d-%s-%s.png",
+                                snapshotCount.incrementAndGet(), title, action);
+    return picture.write(new File(directory, name).getPath());
+  }
+
+}
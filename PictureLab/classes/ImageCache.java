@@ -0,0 +1,266 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class that remembers decoded pictures so that loading the same
+ * file again (like the four GeorgiaTech.jpg pictures in a collage)
+ * doesn't decode it again.  The least recently used pictures are
+ * thrown away when the cache holds more than its byte budget.  The
+ * cache keeps its own copy of the pixels and hands out a new copy
+ * each time so changing a picture never changes the cache.
+ *
+ * The default cache holds an eighth of the most memory the heap can
+ * grow to (at least 64 MB), so a big photo fits with the usual heap
+ * sizes.  This can be changed with the picturelab.cache.bytes system
+ * property or setMaxBytes (0 turns the cache off).
+ */
+public class ImageCache
+{
+  /** the smallest default byte budget */
+  private static final long MIN_DEFAULT_BYTES = 64L << 20;
+
+  /** the default byte budget (an eighth of the maximum heap size) */
+  public static final long DEFAULT_MAX_BYTES = getDefaultMaxBytes();
+
+  /** the cache used when loading pictures from files */
+  private static final ImageCache defaultCache =
+    new ImageCache(Long.getLong("picturelab.cache.bytes", DEFAULT_MAX_BYTES));
+
+  /** the cached pictures by file path in least recently used order */
+  private final LinkedHashMap<String,Entry> entries =
+    new LinkedHashMap<String,Entry>(16, 0.75f, true);
+
+  /** the most bytes of pixels to keep */
+  private long maxBytes;
+
+  /** the bytes of pixels kept now */
+  private long bytes;
+
+  /** the number of times a picture was found */
+  private long hits;
+
+  /** the number of times a picture wasn't found */
+  private long misses;
+
+  /** the number of pictures thrown away to stay in the budget */
+  private long evictions;
+
+  /**
+   * A cached picture and the file it was decoded from
+   */
+  private static class Entry
+  {
+    /** the time the file was last changed */
+    private final long lastModified;
+
+    /** the length of the file */
+    private final long length;
+
+    /** the buffered image type (int RGB or ARGB) */
+    private final int type;
+
+    /** the width of the picture */
+    private final int width;
+
+    /** the height of the picture */
+    private final int height;
+
+    /** the pixels in row order */
+    private final int[] pixels;
+
+    private Entry(long lastModified, long length, int type,
+                  int width, int height, int[] pixels)
+    {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.type = type;
+      this.width = width;
+      this.height = height;
+      this.pixels = pixels;
+    }
+
+    /** @return the number of bytes used by the pixels */
+    private long getBytes() { return (long) pixels.length * 4; }
+  }
+
+  /**
+   * Method to get the cache used when loading pictures from files
+   * @return the default cache
+   */
+  public static ImageCache getDefault()
+  {
+    return defaultCache;
+  }
+
+  /**
+   * Method to get the default byte budget, an eighth of the most
+   * memory the heap can grow to but at least 64 MB
+   * @return the default byte budget
+   */
+  private static long getDefaultMaxBytes()
+  {
+    long maxMemory = Runtime.getRuntime().maxMemory();
+    if (maxMemory == Long.MAX_VALUE) // no limit on the heap
+      return MIN_DEFAULT_BYTES;
+    return Math.max(MIN_DEFAULT_BYTES, maxMemory / 8);
+  }
+
+  /**
+   * Constructor that takes the byte budget
+   * @param maxBytes the most bytes of pixels to keep
+   */
+  public ImageCache(long maxBytes)
+  {
+    setMaxBytes(maxBytes);
+  }
+
+  /**
+   * Method to get a copy of the picture decoded from a file
+   * @param file the file
+   * @return a new copy of the picture or null if it isn't cached
+   * (or the file has changed since it was cached)
+   * @throws IOException if the file path can't be resolved
+   */
+  public BufferedImage get(File file) throws IOException
+  {
+    String path = file.getCanonicalPath();
+    long lastModified = file.lastModified();
+    long length = file.length();
+    Entry entry;
+    synchronized (this)
+    {
+      entry = entries.get(path);
+      if (entry != null && (entry.lastModified != lastModified ||
+                            entry.length != length))
+      {
+        // the file changed so the picture is stale
+        entries.remove(path);
+        bytes -= entry.getBytes();
+        entry = null;
+      }
+      if (entry == null)
+      {
+        misses++;
+        return null;
+      }
+      hits++;
+    }
+
+    // the entry pixels never change so this copy doesn't need the lock
+    BufferedImage image = new BufferedImage(entry.width, entry.height,
+                                            entry.type);
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    System.arraycopy(entry.pixels, 0, data, 0, entry.pixels.length);
+    return image;
+  }
+
+  /**
+   * Method to remember a copy of the picture decoded from a file.
+   * Only int RGB and ARGB images are kept and pictures bigger than
+   * the budget are ignored.
+   * @param file the file the image was decoded from
+   * @param image the decoded image
+   * @throws IOException if the file path can't be resolved
+   */
+  public void put(File file, BufferedImage image) throws IOException
+  {
+    int type = image.getType();
+    if (type != BufferedImage.TYPE_INT_RGB &&
+        type != BufferedImage.TYPE_INT_ARGB)
+      return;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if ((long) width * height * 4 > getMaxBytes())
+      return;
+
+    String path = file.getCanonicalPath();
+    int[] pixels = (int[]) image.getRaster().getDataElements(0, 0, width,
+                                                             height, null);
+    Entry entry = new Entry(file.lastModified(), file.length(), type,
+                            width, height, pixels);
+    synchronized (this)
+    {
+      Entry old = entries.put(path, entry);
+      if (old != null)
+        bytes -= old.getBytes();
+      bytes += entry.getBytes();
+      trim();
+    }
+  }
+
+  /**
+   * Method to throw away the least recently used pictures until the
+   * cache is within its budget
+   */
+  private void trim()
+  {
+    Iterator<Map.Entry<String,Entry>> iterator =
+      entries.entrySet().iterator();
+    while (bytes > maxBytes && iterator.hasNext())
+    {
+      bytes -= iterator.next().getValue().getBytes();
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Method to throw away all the cached pictures
+   */
+  public synchronized void clear()
+  {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Method to get the byte budget
+   * @return the most bytes of pixels to keep
+   */
+  public synchronized long getMaxBytes() { return maxBytes; }
+
+  /**
+   * Method to set the byte budget.  Pictures are thrown away if the
+   * cache now holds too much.
+   * @param maxBytes the most bytes of pixels to keep (0 turns it off)
+   */
+  public synchronized void setMaxBytes(long maxBytes)
+  {
+    if (maxBytes < 0)
+      throw new IllegalArgumentException("maxBytes can't be negative");
+    this.maxBytes = maxBytes;
+    trim();
+  }
+
+  /** @return the bytes of pixels kept now */
+  public synchronized long getBytes() { return bytes; }
+
+  /** @return the number of pictures kept now */
+  public synchronized int getSize() { return entries.size(); }
+
+  /** @return the number of times a picture was found */
+  public synchronized long getHits() { return hits; }
+
+  /** @return the number of times a picture wasn't found */
+  public synchronized long getMisses() { return misses; }
+
+  /** @return the number of pictures thrown away to stay in the budget */
+  public synchronized long getEvictions() { return evictions; }
+
+  /**
+   * Method to return a string with information about this cache
+   * @return a string with the counters and sizes
+   */
+  public synchronized String toString()
+  {
+    return "Image Cache, pictures = " + entries.size() +
+      " bytes = " + bytes + " of " + maxBytes +
+      " hits = " + hits + " misses = " + misses +
+      " evictions = " + evictions;
+  }
+}
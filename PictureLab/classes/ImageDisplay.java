@@ -1,10 +1,18 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Class to display an image and the current location with a + sign
  * 
+ * The image is drawn from tiles that are kept in images made for the
+ * screen, and only the tiles in the part of the display that needs
+ * painting are drawn.  Moving the + sign only repaints the small areas
+ * where it was and where it is now.
+ * 
  * @author Barb Ericson ericson@cc.gatech.edu
  */
 public class ImageDisplay extends JPanel implements Scrollable
@@ -13,6 +21,10 @@ public class ImageDisplay extends JPanel implements Scrollable
   /////////////////////////// fields (attributes ///////////////////////////
   /** the image to draw */
   private Image image;         
+  /** the width to draw the image (it is scaled to fit) */
+  private int displayWidth;
+  /** the height to draw the image (it is scaled to fit) */
+  private int displayHeight;
   /** the preferred size of the display */
   private Dimension prefSize;  
   /** the current x index */
@@ -20,6 +32,24 @@ public class ImageDisplay extends JPanel implements Scrollable
   /** the current y index */
   private int currentY = 0;    
   
+  /** the width and height of a tile */
+  private static final int TILE_SIZE = 256;
+  /** the most tiles to keep */
+  private static final int MAX_TILES = 64;
+  /** how far the + sign reaches from the current x and y */
+  private static final int CROSS_SIZE = 4;
+  /** the tiles drawn so far by row and column, least recently used first */
+  private Map<Long,Image> tiles = new LinkedHashMap<Long,Image>(16,0.75f,true)
+  {
+    protected boolean removeEldestEntry(Map.Entry<Long,Image> eldest)
+    {
+      if (size() <= MAX_TILES)
+        return false;
+      eldest.getValue().flush();
+      return true;
+    }
+  };
+  
   //////////////////////////// constructors /////////////////////////////////
   
   /**
@@ -29,7 +59,9 @@ public class ImageDisplay extends JPanel implements Scrollable
   public ImageDisplay(Image theImage)
   {
     image = theImage;
-    prefSize = new Dimension(image.getWidth(this),image.getHeight(this));
+    displayWidth = image.getWidth(this);
+    displayHeight = image.getHeight(this);
+    prefSize = new Dimension(displayWidth,displayHeight);
     setPreferredSize(prefSize);
     revalidate();
   }
@@ -73,8 +105,7 @@ public class ImageDisplay extends JPanel implements Scrollable
    */
   public void setCurrentX(int x) 
   {
-    currentX = x;
-    repaint();
+    setCurrentLocation(x,currentY);
   }
   
   /**
@@ -83,8 +114,37 @@ public class ImageDisplay extends JPanel implements Scrollable
    */
   public void setCurrentY(int y) 
   {
+    setCurrentLocation(currentX,y);
+  }
+  
+  /**
+   * Method to set the current x and y.  Only the areas around the old
+   * and new location are repainted.
+   * @param x the x value to use
+   * @param y the y value to use
+   */
+  public void setCurrentLocation(int x, int y)
+  {
+    if (x == currentX && y == currentY)
+      return;
+    repaintCross();
+    currentX = x;
     currentY = y;
-    repaint();
+    repaintCross();
+  }
+  
+  /**
+   * Method to repaint the area around the current x and y.  On the 
+   * event dispatch thread it is painted right away so that it isn't
+   * joined with the other area into one big area to paint.
+   */
+  private void repaintCross()
+  {
+    int size = CROSS_SIZE * 2 + 1;
+    if (SwingUtilities.isEventDispatchThread() && isShowing())
+      paintImmediately(currentX - CROSS_SIZE,currentY - CROSS_SIZE,size,size);
+    else
+      repaint(currentX - CROSS_SIZE,currentY - CROSS_SIZE,size,size);
   }
   
   /**
@@ -93,11 +153,164 @@ public class ImageDisplay extends JPanel implements Scrollable
    */
   public void setImage(Image theImage)
   {
+    setImage(theImage,theImage.getWidth(this),theImage.getHeight(this));
+  }
+  
+  /**
+   * Method to set the image and the size to show it at.  The image is
+   * scaled when it is drawn so no scaled copy of it is made.
+   * @param theImage the new image to use
+   * @param width the width to show the image at
+   * @param height the height to show the image at
+   */
+  public void setImage(Image theImage, int width, int height)
+  {
+    if (theImage != image || width != displayWidth || height != displayHeight)
+      clearTiles();
     image = theImage;
-    setPreferredSize(new Dimension(image.getWidth(this),image.getHeight(this)));
+    displayWidth = width;
+    displayHeight = height;
+    setPreferredSize(new Dimension(width,height));
     repaint();
   }
   
+  /**
+   * Method to repaint everything after the pixels in the image have
+   * changed
+   */
+  public void updateImage()
+  {
+    clearTiles();
+    repaint();
+  }
+  
+  /**
+   * Method to repaint part of the display after some pixels in the 
+   * image have changed.  Only the tiles that overlap the changed part
+   * are made again.
+   * @param region the part of the image that changed (in image 
+   * coordinates, not display coordinates)
+   */
+  public void updateImage(Rectangle region)
+  {
+    // find the part of the display that shows the region (a pixel 
+    // bigger on each side in case it is smoothed)
+    double xScale = (double) displayWidth / image.getWidth(this);
+    double yScale = (double) displayHeight / image.getHeight(this);
+    int left = (int) Math.floor(region.x * xScale) - 1;
+    int top = (int) Math.floor(region.y * yScale) - 1;
+    int right = (int) Math.ceil((region.x + region.width) * xScale) + 1;
+    int bottom = (int) Math.ceil((region.y + region.height) * yScale) + 1;
+    Rectangle changed = new Rectangle(left,top,right - left,bottom - top);
+    
+    // throw away the tiles that show any of it
+    synchronized (tiles)
+    {
+      Iterator<Map.Entry<Long,Image>> iterator = tiles.entrySet().iterator();
+      while (iterator.hasNext())
+      {
+        Map.Entry<Long,Image> entry = iterator.next();
+        long key = entry.getKey();
+        Rectangle tile = new Rectangle((int) key * TILE_SIZE,
+                                       (int) (key >> 32) * TILE_SIZE,
+                                       TILE_SIZE,TILE_SIZE);
+        if (tile.intersects(changed))
+        {
+          entry.getValue().flush();
+          iterator.remove();
+        }
+      }
+    }
+    repaint(changed);
+  }
+  
+  /**
+   * Method to throw away the tiles
+   */
+  private void clearTiles()
+  {
+    synchronized (tiles)
+    {
+      for (Image tile : tiles.values())
+        tile.flush();
+      tiles.clear();
+    }
+  }
+  
+  /**
+   * Method to get a tile of the image as it is displayed.  The tile is
+   * made the first time it is needed.  The tiles can be thrown away 
+   * from other threads when the picture changes so they are locked.
+   * @param column the tile column
+   * @param row the tile row
+   * @return the tile or null if tiles can't be made
+   */
+  private Image getTile(int column, int row)
+  {
+    synchronized (tiles)
+    {
+      Long key = Long.valueOf(((long) row << 32) | column);
+      Image tile = tiles.get(key);
+      if (tile == null)
+      {
+        tile = makeTile(column,row);
+        if (tile != null)
+          tiles.put(key,tile);
+      }
+      return tile;
+    }
+  }
+  
+  /**
+   * Method to draw a tile of the image as it is displayed
+   * @param column the tile column
+   * @param row the tile row
+   * @return the tile or null if tiles can't be made
+   */
+  private Image makeTile(int column, int row)
+  {
+    // make an image that can be drawn quickly on the screen
+    GraphicsConfiguration config = getGraphicsConfiguration();
+    if (config == null)
+      return null;
+    int x = column * TILE_SIZE;
+    int y = row * TILE_SIZE;
+    int width = Math.min(TILE_SIZE,displayWidth - x);
+    int height = Math.min(TILE_SIZE,displayHeight - y);
+    int transparency = Transparency.OPAQUE;
+    if (image instanceof BufferedImage)
+      transparency = ((BufferedImage) image).getTransparency();
+    BufferedImage newTile = config.createCompatibleImage(width,height,
+                                                         transparency);
+    Graphics2D g2 = newTile.createGraphics();
+    g2.translate(-x,-y);
+    drawImage(g2);
+    g2.dispose();
+    return newTile;
+  }
+  
+  /**
+   * Method to draw the whole image at the display size
+   * @param g2 the graphics to draw on
+   */
+  private void drawImage(Graphics2D g2)
+  {
+    int imageWidth = image.getWidth(this);
+    int imageHeight = image.getHeight(this);
+    if (imageWidth == displayWidth && imageHeight == displayHeight)
+      g2.drawImage(image,0,0,this);
+    else
+    {
+      // show each pixel as a block when zoomed in and smooth it when
+      // zoomed out
+      g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                          (displayWidth > imageWidth) ?
+                          RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR :
+                          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g2.drawImage(image,0,0,displayWidth,displayHeight,this);
+    }
+  }
+  
   /**
    * Method to return the preferred size
    * @return the preferred size of this component
@@ -159,13 +372,43 @@ public class ImageDisplay extends JPanel implements Scrollable
     int xEnd = currentX + num;
     int yStart = currentY - num;
     int yEnd = currentY + num;
-    int width = image.getWidth(this);
+    int width = displayWidth;
     int maxX = width - 1;
-    int height = image.getHeight(this);
+    int height = displayHeight;
     int maxY = height - 1;
     
-    // draw the image
-    g.drawImage(image,0,0,this);
+    // draw the tiles of the image that are in the clip
+    Rectangle clip = g.getClipBounds();
+    if (clip == null)
+      clip = new Rectangle(0,0,width,height);
+    clip = clip.intersection(new Rectangle(0,0,width,height));
+    if (!clip.isEmpty())
+    {
+      int firstColumn = clip.x / TILE_SIZE;
+      int lastColumn = (clip.x + clip.width - 1) / TILE_SIZE;
+      int firstRow = clip.y / TILE_SIZE;
+      int lastRow = (clip.y + clip.height - 1) / TILE_SIZE;
+      boolean drawn = true;
+      for (int row = firstRow; row <= lastRow && drawn; row++)
+      {
+        for (int column = firstColumn; column <= lastColumn && drawn; column++)
+        {
+          Image tile = getTile(column,row);
+          if (tile == null)
+            drawn = false;
+          else
+            g.drawImage(tile,column * TILE_SIZE,row * TILE_SIZE,this);
+        }
+      }
+      
+      // draw straight from the image if tiles can't be made
+      if (!drawn)
+      {
+        Graphics2D g2 = (Graphics2D) g.create();
+        drawImage(g2);
+        g2.dispose();
+      }
+    }
     
     // check if the current index is in the image
     if (currentX >= 0 && currentX < width &&
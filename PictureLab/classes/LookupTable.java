@@ -0,0 +1,282 @@
+/**
+ * Class for a point operation that has been compiled into lookup 
+ * tables.  The operation is run once for every possible input when 
+ * the table is made and after that each pixel is changed with a few
+ * table lookups instead of doing the math again.  There are three 
+ * kinds of tables:
+ * <ul>
+ * <li>channel tables for operations where each new color value only
+ * depends on the old value of the same color (3 tables of 256)</li>
+ * <li>keyed tables for operations where each new color value depends
+ * on the old value of the same color and on one key color, like a 
+ * filter that tests the red value (3 tables of 256 x 256)</li>
+ * <li>a full table for any other operation on the colors (one table 
+ * of 256 x 256 x 256 that takes 64 MB)</li>
+ * </ul>
+ * The alpha of each pixel is always kept, so the operation must not 
+ * change the alpha.  The kind of table is chosen by the caller and 
+ * isn't checked, so picking a channel or keyed table for an operation
+ * that mixes the colors more than that gives the wrong answers.
+ */
+public abstract class LookupTable implements PointOperation
+{
+  
+  ////////////////////////// fields ///////////////////////////////////
+  
+  /** the key for the red value (the amount to shift a pixel by) */
+  public static final int RED = 16;
+  
+  /** the key for the green value (the amount to shift a pixel by) */
+  public static final int GREEN = 8;
+  
+  /** the key for the blue value (the amount to shift a pixel by) */
+  public static final int BLUE = 0;
+  
+  ///////////////////////// methods //////////////////////////////
+  
+  /**
+   * Method to compile an operation where each new color value only
+   * depends on the old value of the same color
+   * @param operation the operation to compile
+   * @return the compiled operation
+   */
+  public static LookupTable channels(PointOperation operation)
+  {
+    int[] redTable = new int[256];
+    int[] greenTable = new int[256];
+    int[] blueTable = new int[256];
+    for (int i = 0; i < 256; i++)
+    {
+      int result = applyOpaque(operation, (i << 16) | (i << 8) | i);
+      redTable[i] = result & 0xff0000;
+      greenTable[i] = result & 0xff00;
+      blueTable[i] = result & 0xff;
+    }
+    return new ChannelTable(redTable,greenTable,blueTable);
+  }
+  
+  /**
+   * Method to compile an operation where each new color value only 
+   * depends on the old value of the same color and the old value of 
+   * the key color
+   * @param key the key color (RED, GREEN, or BLUE)
+   * @param operation the operation to compile
+   * @return the compiled operation
+   */
+  public static LookupTable keyed(int key, PointOperation operation)
+  {
+    if (key != RED && key != GREEN && key != BLUE)
+      throw new IllegalArgumentException("key must be RED, GREEN, or BLUE");
+    
+    int[] redTable = new int[256 * 256];
+    int[] greenTable = new int[256 * 256];
+    int[] blueTable = new int[256 * 256];
+    for (int keyValue = 0; keyValue < 256; keyValue++)
+    {
+      for (int i = 0; i < 256; i++)
+      {
+        // set every color to i except the key color
+        int input = (i << 16) | (i << 8) | i;
+        input = (input & ~(0xff << key)) | (keyValue << key);
+        int result = applyOpaque(operation, input);
+        int index = (keyValue << 8) | i;
+        redTable[index] = result & 0xff0000;
+        greenTable[index] = result & 0xff00;
+        blueTable[index] = result & 0xff;
+      }
+    }
+    
+    // the key color itself is looked up with its own value as the key
+    int[] keyTable = (key == RED) ? redTable : 
+      ((key == GREEN) ? greenTable : blueTable);
+    for (int keyValue = 0; keyValue < 256; keyValue++)
+    {
+      int keyResult = keyTable[(keyValue << 8) | keyValue];
+      for (int i = 0; i < 256; i++)
+        keyTable[(keyValue << 8) | i] = keyResult;
+    }
+    return new KeyedTable(key,redTable,greenTable,blueTable);
+  }
+  
+  /**
+   * Method to compile any operation on the colors into one table with 
+   * an entry for every color.  The table takes 64 MB so it should be
+   * made once and reused.
+   * @param operation the operation to compile
+   * @return the compiled operation
+   */
+  public static LookupTable full(final PointOperation operation)
+  {
+    final int[] table = new int[1 << 24];
+    
+    // fill the table in parallel with one red value per row
+    PixelProcessor.getDefault().forEachBand(1 << 16, 256, (startRow, endRow) -> {
+      for (int i = startRow << 16; i < endRow << 16; i++)
+        table[i] = applyOpaque(operation, i) & 0xffffff;
+    });
+    return new FullTable(table);
+  }
+  
+  /**
+   * Method to apply an operation to an opaque color and check that
+   * the alpha wasn't changed
+   * @param operation the operation to apply
+   * @param color the red, green, and blue of the color
+   * @return the result of the operation
+   */
+  private static int applyOpaque(PointOperation operation, int color)
+  {
+    int result = operation.apply(0xff000000 | color);
+    if ((result & 0xff000000) != 0xff000000)
+      throw new IllegalArgumentException("the operation changes the alpha");
+    return result;
+  }
+  
+  //////////////////////// inner classes ///////////////////////////////
+  
+  /**
+   * Class for tables that look up each color by itself
+   */
+  private static final class ChannelTable extends LookupTable
+  {
+    /** the new red values (shifted into place) */
+    private final int[] redTable;
+    /** the new green values (shifted into place) */
+    private final int[] greenTable;
+    /** the new blue values */
+    private final int[] blueTable;
+    
+    /**
+     * Constructor that takes the tables
+     * @param redTable the new red values
+     * @param greenTable the new green values
+     * @param blueTable the new blue values
+     */
+    private ChannelTable(int[] redTable, int[] greenTable, int[] blueTable)
+    {
+      this.redTable = redTable;
+      this.greenTable = greenTable;
+      this.blueTable = blueTable;
+    }
+    
+    /**
+     * Method to look up the new pixel value
+     * @param value the old pixel value
+     * @return the new pixel value
+     */
+    public int apply(int value)
+    {
+      return (value & 0xff000000) | redTable[(value >> 16) & 0xff] |
+        greenTable[(value >> 8) & 0xff] | blueTable[value & 0xff];
+    }
+    
+    /**
+     * Method to look up the new values for part of an array
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     */
+    public void applyToArray(int[] values, int start, int end)
+    {
+      for (int i = start; i < end; i++)
+        values[i] = apply(values[i]);
+    }
+  }
+  
+  /**
+   * Class for tables that look up each color with a key color
+   */
+  private static final class KeyedTable extends LookupTable
+  {
+    /** the key color (the amount to shift a pixel by) */
+    private final int key;
+    /** the new red values (shifted into place) */
+    private final int[] redTable;
+    /** the new green values (shifted into place) */
+    private final int[] greenTable;
+    /** the new blue values */
+    private final int[] blueTable;
+    
+    /**
+     * Constructor that takes the key and the tables
+     * @param key the key color
+     * @param redTable the new red values
+     * @param greenTable the new green values
+     * @param blueTable the new blue values
+     */
+    private KeyedTable(int key, int[] redTable, int[] greenTable, 
+                       int[] blueTable)
+    {
+      this.key = key;
+      this.redTable = redTable;
+      this.greenTable = greenTable;
+      this.blueTable = blueTable;
+    }
+    
+    /**
+     * Method to look up the new pixel value
+     * @param value the old pixel value
+     * @return the new pixel value
+     */
+    public int apply(int value)
+    {
+      int row = ((value >> key) & 0xff) << 8;
+      return (value & 0xff000000) | redTable[row | ((value >> 16) & 0xff)] |
+        greenTable[row | ((value >> 8) & 0xff)] | 
+        blueTable[row | (value & 0xff)];
+    }
+    
+    /**
+     * Method to look up the new values for part of an array
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     */
+    public void applyToArray(int[] values, int start, int end)
+    {
+      for (int i = start; i < end; i++)
+        values[i] = apply(values[i]);
+    }
+  }
+  
+  /**
+   * Class for a table with an entry for every color
+   */
+  private static final class FullTable extends LookupTable
+  {
+    /** the new red, green, and blue for each old color */
+    private final int[] table;
+    
+    /**
+     * Constructor that takes the table
+     * @param table the new color for each old color
+     */
+    private FullTable(int[] table)
+    {
+      this.table = table;
+    }
+    
+    /**
+     * Method to look up the new pixel value
+     * @param value the old pixel value
+     * @return the new pixel value
+     */
+    public int apply(int value)
+    {
+      return (value & 0xff000000) | table[value & 0xffffff];
+    }
+    
+    /**
+     * Method to look up the new values for part of an array
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     */
+    public void applyToArray(int[] values, int start, int end)
+    {
+      for (int i = start; i < end; i++)
+        values[i] = apply(values[i]);
+    }
+  }
+  
+}
@@ -0,0 +1,1004 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A class that represents a picture whose pixels are kept in a file
+ * that is mapped into memory instead of on the Java heap.  The
+ * operating system pages the pixels in as they are used, so pictures
+ * much bigger than the heap can be worked on.  The file holds a
+ * 16 byte header (the magic number, a version, the width, and the
+ * height) followed by one little-endian int per pixel with alpha,
+ * red, green, and blue in row-major order.
+ * <p>
+ * The Picture filters that are point operations can be used on a
+ * mapped picture through PixelProcessor or FilterChain, for example
+ * <code>new FilterChain(mapped).grayscale().sepia().apply()</code>,
+ * and edges can be found with EdgeDetector.  The buffered image of a
+ * mapped picture reads and writes the mapped file directly so it can
+ * be shown and explored without copying the pixels to the heap.
+ */
+public class MappedPicture implements DigitalPicture
+{
+
+  /////////////////////// Fields /////////////////////////
+
+  /** the extension used for mapped picture files */
+  public static final String EXTENSION = "pixels";
+
+  /** the number at the start of every mapped picture file ("PXLM") */
+  private static final int MAGIC = 0x50584c4d;
+
+  /** the version of the file layout */
+  private static final int VERSION = 1;
+
+  /** the number of bytes before the first pixel */
+  private static final int HEADER_SIZE = 16;
+
+  /** the most bytes to map at once (a mapping has to be under 2 GB) */
+  private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+  /** the most pixels in the copy shown of a picture too big to show */
+  private static final long MAX_VIEW_PIXELS = 1 << 24;
+
+  /** the number of pixels to decode at a time when importing an image */
+  private static final int IMPORT_PIXELS_PER_STRIP = 1 << 22;
+
+  /** the number of pixels kept while streaming an image into a file */
+  private static final int STREAM_PIXELS_PER_WINDOW = 1 << 20;
+
+  /** the name of the mapped file */
+  private String fileName;
+
+  /** the title of the picture */
+  private String title;
+
+  /** the width of the picture in pixels */
+  private int width;
+
+  /** the height of the picture in pixels */
+  private int height;
+
+  /** the number of rows in each mapped chunk */
+  private int rowsPerChunk;
+
+  /** the mapped chunks of the file as ints */
+  private IntBuffer[] chunks;
+
+  /** the mapped chunks of the file (used to write changes to disk) */
+  private MappedByteBuffer[] mappedChunks;
+
+  /** the buffered image that reads and writes the mapped file */
+  private BufferedImage bufferedImage;
+
+  /** frame used to display the picture */
+  private PictureFrame pictureFrame;
+
+  /////////////////////// Constructors /////////////////////////
+
+  /**
+   * A constructor that maps an existing mapped picture file
+   * @param fileName the name of the mapped picture file
+   * @throws IOException if the file can't be opened or isn't a
+   * mapped picture file
+   */
+  public MappedPicture(String fileName) throws IOException
+  {
+    map(fileName);
+  }
+
+  ////////////////////////// Methods //////////////////////////////
+
+  /**
+   * Method to create a new mapped picture file where all the pixels
+   * are white
+   * @param fileName the name of the file to create
+   * @param width the width of the picture
+   * @param height the height of the picture
+   * @return the new mapped picture
+   * @throws IOException if the file can't be created
+   */
+  public static MappedPicture create(String fileName, int width, int height)
+    throws IOException
+  {
+    createFile(fileName, width, height);
+    MappedPicture picture = new MappedPicture(fileName);
+    int[] row = new int[width];
+    java.util.Arrays.fill(row, 0xffffffff);
+    for (int y = 0; y < height; y++)
+      picture.setBasicPixelRow(y, row);
+    return picture;
+  }
+
+  /**
+   * Method to create a mapped picture file from an image file.  The
+   * image is decoded once from top to bottom and each finished row
+   * is copied into the file, so the whole image is never on the heap
+   * at once.  Images whose rows can be found without decoding the rows
+   * above them (like tiled images) are read a strip of rows at a time.
+   * @param imageFileName the name of the image file (jpg, png, etc)
+   * @param fileName the name of the mapped file to create
+   * @return the new mapped picture
+   * @throws IOException if the image can't be read or the file can't
+   * be created
+   */
+  public static MappedPicture importImage(String imageFileName,
+                                          String fileName)
+    throws IOException
+  {
+    File imageFile = new File(imageFileName);
+    if (!imageFile.canRead())
+      imageFile = new File(MediaPath.getMediaPath(imageFileName));
+
+    ImageInputStream input = ImageIO.createImageInputStream(imageFile);
+    if (input == null)
+      throw new IOException(imageFileName +
+                            " could not be opened. Check that you specified the path");
+    try {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext())
+        throw new IOException(imageFileName + " could not be read as a picture");
+      ImageReader reader = readers.next();
+      try {
+        // not seek forward only so the strips can be read if streaming fails
+        reader.setInput(input, false, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        createFile(fileName, width, height);
+        MappedPicture picture = new MappedPicture(fileName);
+
+        boolean randomAccess = reader.isImageTiled(0) ||
+          reader.isRandomAccessEasy(0);
+        if (randomAccess || !streamImage(reader, picture))
+          readStrips(reader, picture);
+        return picture;
+      } finally {
+        reader.dispose();
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Method to decode an image once into a buffer that only keeps a
+   * window of rows, copying rows into the mapped picture as the window
+   * moves down
+   * @param reader the reader with the image as its input
+   * @param picture the mapped picture to copy the rows into
+   * @return true if the image was copied, false if the reader didn't
+   * decode the rows in order (like an interlaced image), can't decode
+   * into the buffer, or the image is too big for one buffered image
+   * @throws IOException if the image can't be read
+   */
+  private static boolean streamImage(ImageReader reader, MappedPicture picture)
+    throws IOException
+  {
+    int width = picture.width;
+    int height = picture.height;
+    Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+    if (!types.hasNext() || (long) width * height > Integer.MAX_VALUE)
+      return false;
+
+    // keep each color component in its own bank so the buffer never
+    // has more elements than pixels
+    ImageTypeSpecifier type = types.next();
+    ColorModel colorModel = type.getColorModel();
+    SampleModel sampleModel;
+    int stride;
+    if (colorModel instanceof ComponentColorModel)
+    {
+      sampleModel = new BandedSampleModel(type.getSampleModel().getDataType(),
+                                          width, height,
+                                          type.getSampleModel().getNumBands());
+      stride = width;
+    }
+    else
+    {
+      sampleModel = type.getSampleModel(width, height);
+      if (sampleModel instanceof ComponentSampleModel)
+        stride = ((ComponentSampleModel) sampleModel).getScanlineStride();
+      else if (sampleModel instanceof SinglePixelPackedSampleModel)
+        stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+      else if (sampleModel instanceof MultiPixelPackedSampleModel)
+        stride = ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride();
+      else
+        return false;
+      if (sampleModel.getNumDataElements() != 1 ||
+          (long) stride * height > Integer.MAX_VALUE)
+        return false;
+    }
+
+    int windowRows = Math.max(2, STREAM_PIXELS_PER_WINDOW / width);
+    RowWindowBuffer buffer =
+      new RowWindowBuffer(sampleModel, stride, height, windowRows, reader,
+                          picture);
+    WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer,
+                                                       null);
+    buffer.setImage(new BufferedImage(colorModel, raster,
+                                      colorModel.isAlphaPremultiplied(), null));
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setDestination(buffer.getImage());
+    try {
+      reader.read(0, param);
+    } catch (ClassCastException ex) {
+      // the reader only decodes into the buffers it makes itself
+      return false;
+    }
+    if (buffer.isOutOfOrder())
+      return false;
+    buffer.finish();
+    return true;
+  }
+
+  /**
+   * Method to read an image a strip of rows at a time and copy each
+   * strip into the mapped picture
+   * @param reader the reader with the image as its input
+   * @param picture the mapped picture to copy the rows into
+   * @throws IOException if the image can't be read
+   */
+  private static void readStrips(ImageReader reader, MappedPicture picture)
+    throws IOException
+  {
+    int width = picture.width;
+    int height = picture.height;
+    int rowsPerStrip = Math.max(1, IMPORT_PIXELS_PER_STRIP / width);
+    int[] values = null;
+    for (int y = 0; y < height; y += rowsPerStrip)
+    {
+      int rows = Math.min(rowsPerStrip, height - y);
+      ImageReadParam param = reader.getDefaultReadParam();
+      param.setSourceRegion(new Rectangle(0, y, width, rows));
+      BufferedImage strip = reader.read(0, param);
+      values = strip.getRGB(0, 0, width, rows, values, 0, width);
+      picture.setBasicPixels(0, y, width, rows, values, 0, width);
+    }
+  }
+
+  /**
+   * Method to create a mapped picture file with the header filled in
+   * @param fileName the name of the file to create
+   * @param width the width of the picture
+   * @param height the height of the picture
+   * @throws IOException if the file can't be created
+   */
+  private static void createFile(String fileName, int width, int height)
+    throws IOException
+  {
+    if (width <= 0 || height <= 0)
+      throw new IllegalArgumentException("width and height must be positive");
+
+    RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+    try {
+      file.setLength(0);
+      file.setLength(HEADER_SIZE + 4L * width * height);
+      file.writeInt(MAGIC);
+      file.writeInt(VERSION);
+      file.writeInt(width);
+      file.writeInt(height);
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Method to map a mapped picture file into memory
+   * @param fileName the name of the file
+   * @throws IOException if the file can't be opened or isn't a
+   * mapped picture file
+   */
+  private void map(String fileName) throws IOException
+  {
+    RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+    try {
+      if (file.length() < HEADER_SIZE || file.readInt() != MAGIC ||
+          file.readInt() != VERSION)
+        throw new IOException(fileName + " is not a mapped picture file");
+      int newWidth = file.readInt();
+      int newHeight = file.readInt();
+      if (newWidth <= 0 || newHeight <= 0 ||
+          file.length() < HEADER_SIZE + 4L * newWidth * newHeight)
+        throw new IOException(fileName + " is not a mapped picture file");
+
+      // map the pixels in chunks of whole rows
+      int newRowsPerChunk =
+        (int) Math.max(1, Math.min(newHeight, MAX_CHUNK_BYTES / (4L * newWidth)));
+      int numChunks = (newHeight + newRowsPerChunk - 1) / newRowsPerChunk;
+      IntBuffer[] newChunks = new IntBuffer[numChunks];
+      MappedByteBuffer[] newMappedChunks = new MappedByteBuffer[numChunks];
+      FileChannel channel = file.getChannel();
+      for (int i = 0; i < numChunks; i++)
+      {
+        int rows = Math.min(newRowsPerChunk, newHeight - i * newRowsPerChunk);
+        long position = HEADER_SIZE + 4L * newWidth * newRowsPerChunk * i;
+        newMappedChunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                         position, 4L * newWidth * rows);
+        newMappedChunks[i].order(ByteOrder.LITTLE_ENDIAN);
+        newChunks[i] = newMappedChunks[i].asIntBuffer();
+      }
+
+      // the mappings stay valid after the file is closed
+      this.fileName = fileName;
+      if (title == null)
+        title = fileName;
+      width = newWidth;
+      height = newHeight;
+      rowsPerChunk = newRowsPerChunk;
+      chunks = newChunks;
+      mappedChunks = newMappedChunks;
+      bufferedImage = null;
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Method to write any changed pixels out to the mapped file
+   */
+  public void flush()
+  {
+    for (MappedByteBuffer chunk : mappedChunks)
+      chunk.force();
+  }
+
+  /**
+   * Method to get the file name of the mapped file
+   * @return the file name
+   */
+  public String getFileName() { return fileName; }
+
+  /**
+   * Method to get the title of the picture
+   * @return the title of the picture
+   */
+  public String getTitle() { return title; }
+
+  /**
+   * Method to set the title for the picture
+   * @param title the title to use for the picture
+   */
+  public void setTitle(String title)
+  {
+    this.title = title;
+    if (pictureFrame != null)
+      pictureFrame.setTitle(title);
+  }
+
+  /**
+   * Method to get the width of the picture in pixels
+   * @return the width of the picture in pixels
+   */
+  public int getWidth() { return width; }
+
+  /**
+   * Method to get the height of the picture in pixels
+   * @return the height of the picture in pixels
+   */
+  public int getHeight() { return height; }
+
+  /**
+   * Method to get an image from the picture
+   * @return the buffered image since it is an image
+   */
+  public Image getImage()
+  {
+    return getBufferedImage();
+  }
+
+  /**
+   * Method to get a buffered image that reads and writes the pixels in
+   * the mapped file.  Drawing on it changes the picture.
+   * @return the buffered image
+   */
+  public BufferedImage getBufferedImage()
+  {
+    if (bufferedImage == null)
+    {
+      if ((long) width * height > Integer.MAX_VALUE)
+        throw new IllegalStateException(
+          "the picture has too many pixels for a buffered image");
+      DirectColorModel colorModel = (DirectColorModel) ColorModel.getRGBdefault();
+      SampleModel sampleModel =
+        colorModel.createCompatibleSampleModel(width, height);
+      WritableRaster raster =
+        Raster.createWritableRaster(sampleModel, new MappedDataBuffer(), null);
+      bufferedImage = new BufferedImage(colorModel, raster, false, null);
+    }
+    return bufferedImage;
+  }
+
+  /**
+   * Method to get the buffer and index in it for a location
+   * @param x the x coordinate of the pixel
+   * @param y the y coordinate of the pixel
+   * @return the index in the chunk for row y
+   */
+  private int getIndex(int x, int y)
+  {
+    if (x < 0 || x >= width || y < 0 || y >= height)
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+    return (y % rowsPerChunk) * width + x;
+  }
+
+  /**
+   * Method to return the pixel value as an int for the given x and y location
+   * @param x the x coordinate of the pixel
+   * @param y the y coordinate of the pixel
+   * @return the pixel value as an integer (alpha, red, green, blue)
+   */
+  public int getBasicPixel(int x, int y)
+  {
+    int index = getIndex(x,y);
+    return chunks[y / rowsPerChunk].get(index);
+  }
+
+  /**
+   * Method to set the value of a pixel in the picture from an int
+   * @param x the x coordinate of the pixel
+   * @param y the y coordinate of the pixel
+   * @param rgb the new rgb value of the pixel (alpha, red, green, blue)
+   */
+  public void setBasicPixel(int x, int y, int rgb)
+  {
+    int index = getIndex(x,y);
+    chunks[y / rowsPerChunk].put(index, rgb);
+  }
+
+  /**
+   * Method to change the value of a pixel in the picture by applying
+   * an operation to it.  The pixel is read once and written once.
+   * @param x the x coordinate of the pixel
+   * @param y the y coordinate of the pixel
+   * @param operation the operation that takes the current pixel value
+   * and returns the new one
+   */
+  public void updateBasicPixel(int x, int y, IntUnaryOperator operation)
+  {
+    int index = getIndex(x,y);
+    IntBuffer chunk = chunks[y / rowsPerChunk];
+    chunk.put(index, operation.applyAsInt(chunk.get(index)));
+  }
+
+  /**
+   * Method to get the pixel values for a rectangular region of the
+   * picture as ints
+   * @param x the x coordinate of the top left of the region
+   * @param y the y coordinate of the top left of the region
+   * @param width the width of the region
+   * @param height the height of the region
+   * @param values the array to put the values in (if null a new
+   * array is created)
+   * @param offset the index in the array of the first value
+   * @param scansize the distance in the array between rows
+   * @return the array of pixel values (alpha, red, green, blue)
+   */
+  public int[] getBasicPixels(int x, int y, int width, int height,
+                              int[] values, int offset, int scansize)
+  {
+    checkRegion(x,y,width,height);
+    if (values == null)
+      values = new int[offset + height * scansize];
+    for (int row = 0; row < height; row++)
+    {
+      int index = getIndex(x,y + row);
+      chunks[(y + row) / rowsPerChunk].get(index, values,
+                                           offset + row * scansize, width);
+    }
+    return values;
+  }
+
+  /**
+   * Method to set the pixel values for a rectangular region of the
+   * picture from ints
+   * @param x the x coordinate of the top left of the region
+   * @param y the y coordinate of the top left of the region
+   * @param width the width of the region
+   * @param height the height of the region
+   * @param values the new pixel values (alpha, red, green, blue)
+   * @param offset the index in the array of the first value
+   * @param scansize the distance in the array between rows
+   */
+  public void setBasicPixels(int x, int y, int width, int height,
+                             int[] values, int offset, int scansize)
+  {
+    checkRegion(x,y,width,height);
+    for (int row = 0; row < height; row++)
+    {
+      int index = getIndex(x,y + row);
+      chunks[(y + row) / rowsPerChunk].put(index, values,
+                                           offset + row * scansize, width);
+    }
+  }
+
+  /**
+   * Method to get the pixel values for one row of the picture
+   * @param y the row to get
+   * @param values the array to put the values in (if null a new
+   * array is created)
+   * @return the array of pixel values from x=0 to x=width-1
+   */
+  public int[] getBasicPixelRow(int y, int[] values)
+  {
+    return getBasicPixels(0,y,width,1,values,0,width);
+  }
+
+  /**
+   * Method to set the pixel values for one row of the picture
+   * @param y the row to set
+   * @param values the new pixel values from x=0 to x=width-1
+   */
+  public void setBasicPixelRow(int y, int[] values)
+  {
+    setBasicPixels(0,y,width,1,values,0,width);
+  }
+
+  /**
+   * Method to check that a region is inside the picture
+   * @param x the x coordinate of the top left of the region
+   * @param y the y coordinate of the top left of the region
+   * @param width the width of the region
+   * @param height the height of the region
+   */
+  private void checkRegion(int x, int y, int width, int height)
+  {
+    if (x < 0 || y < 0 || width < 0 || height < 0 ||
+        x + width > this.width || y + height > this.height)
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+  }
+
+  /**
+   * Method to get a pixel object for the given x and y location
+   * @param x  the x location of the pixel in the picture
+   * @param y  the y location of the pixel in the picture
+   * @return a Pixel object for this location
+   */
+  public Pixel getPixel(int x, int y)
+  {
+    return new Pixel(this,x,y);
+  }
+
+  /**
+   * Method to get a one-dimensional array of Pixels for this picture.
+   * This makes an object for every pixel so avoid it for big pictures.
+   * @return a one-dimensional array of Pixel objects starting with y=0
+   * to y=height-1 and x=0 to x=width-1.
+   */
+  public Pixel[] getPixels()
+  {
+    Pixel[] pixelArray = new Pixel[width * height];
+    for (int row = 0; row < height; row++)
+      for (int col = 0; col < width; col++)
+        pixelArray[row * width + col] = new Pixel(this,col,row);
+    return pixelArray;
+  }
+
+  /**
+   * Method to get a two-dimensional array of Pixels for this picture.
+   * This makes an object for every pixel so avoid it for big pictures.
+   * @return a two-dimensional array of Pixel objects in row-major order.
+   */
+  public Pixel[][] getPixels2D()
+  {
+    Pixel[][] pixelArray = new Pixel[height][width];
+    for (int row = 0; row < height; row++)
+      for (int col = 0; col < width; col++)
+        pixelArray[row][col] = new Pixel(this,col,row);
+    return pixelArray;
+  }
+
+  /**
+   * Method to visit all the pixels in this picture in row-major order
+   * with one Pixel object that is moved to each location in turn
+   * @param visitor the visitor to call for each pixel
+   */
+  public void forEachPixel(PixelVisitor visitor)
+  {
+    Pixel pixel = new Pixel(this,0,0);
+    for (int row = 0; row < height; row++)
+    {
+      for (int col = 0; col < width; col++)
+      {
+        pixel.moveTo(col,row);
+        visitor.visit(pixel);
+      }
+    }
+  }
+
+  /**
+   * Method to draw the passed image onto the picture starting at 0,0
+   * @param image the image to draw
+   */
+  public void load(Image image)
+  {
+    Graphics2D graphics2d = getBufferedImage().createGraphics();
+    graphics2d.drawImage(image,0,0,null);
+    graphics2d.dispose();
+    show();
+  }
+
+  /**
+   * Method to map a different mapped picture file
+   * @param fileName the name of the mapped picture file
+   * @return true if success else false
+   */
+  public boolean load(String fileName)
+  {
+    try {
+      map(fileName);
+      return true;
+    } catch (Exception ex) {
+      System.out.println("There was an error trying to open " + fileName);
+      return false;
+    }
+  }
+
+  /**
+   * Method to show the picture in a picture frame.  In headless mode
+   * a snapshot is written instead (see Headless).  A picture with more
+   * pixels than a buffered image can hold is shown as a smaller copy.
+   */
+  public void show()
+  {
+    if (Headless.isHeadless())
+    {
+      if (Headless.getSnapshotDirectory() != null)
+        Headless.snapshot(getViewablePicture(), "show");
+      return;
+    }
+    DigitalPicture view = getViewablePicture();
+    if (view != this)
+      view.show();
+    else if (pictureFrame != null)
+      pictureFrame.updateImageAndShowIt();
+    else
+      pictureFrame = new PictureFrame(this);
+  }
+
+  /**
+   * Method to open a picture explorer on this picture.  Unlike
+   * SimplePicture this doesn't copy the picture first, since the
+   * copy would have to be on the heap.  A picture with more pixels than
+   * a buffered image can hold is explored as a smaller copy instead.
+   * In headless mode a snapshot is written instead.
+   */
+  public void explore()
+  {
+    if (Headless.isHeadless())
+    {
+      if (Headless.getSnapshotDirectory() != null)
+        Headless.snapshot(getViewablePicture(), "explore");
+      return;
+    }
+    DigitalPicture view = getViewablePicture();
+    if (view != this)
+      view.explore();
+    else
+      new PictureExplorer(this);
+  }
+
+  /**
+   * Method to get a picture that can be shown.  A buffered image can't
+   * have more than Integer.MAX_VALUE pixels, so a bigger picture is
+   * shrunk to a copy on the heap of at most 16M pixels, with its size
+   * added to the title.  Changes to the copy don't change this picture.
+   * @return this picture, or a smaller copy if it is too big to show
+   */
+  private DigitalPicture getViewablePicture()
+  {
+    long pixels = (long) width * height;
+    if (pixels <= Integer.MAX_VALUE)
+      return this;
+    double scale = Math.sqrt((double) MAX_VIEW_PIXELS / pixels);
+    int viewWidth = Math.max(1, (int) (width * scale));
+    int viewHeight = Math.max(1, (int) (height * scale));
+    Picture view = new Resampler(Resampler.Filter.BOX).resize(this, viewWidth,
+                                                              viewHeight);
+    view.setTitle(title + " (shown at " + viewWidth + " by " + viewHeight + ")");
+    return view;
+  }
+
+  /**
+   * Method to write the picture to a file.  If the file name ends in
+   * the mapped picture extension the pixels are copied to a new mapped
+   * file, else the picture is written as an image (jpg, png, etc).
+   * @param fileName the name of the file to write the picture to
+   * @return true if success else false
+   */
+  public boolean write(String fileName)
+  {
+    try {
+      int posDot = fileName.lastIndexOf('.');
+      String extension = (posDot >= 0) ? fileName.substring(posDot + 1) : EXTENSION;
+      if (extension.equalsIgnoreCase(EXTENSION))
+      {
+        MappedPicture copy = create(fileName, width, height);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++)
+          copy.setBasicPixelRow(y, getBasicPixelRow(y, row));
+        copy.flush();
+        return true;
+      }
+      new PictureEncoder(extension).encode(this, new File(fileName));
+      return true;
+    } catch (Exception ex) {
+      System.out.println("There was an error trying to write " + fileName);
+      ex.printStackTrace();
+      return false;
+    }
+  }
+
+  /**
+   * Method to return a string with information about this picture
+   * @return a string with information about the picture
+   */
+  public String toString()
+  {
+    return "Mapped Picture, filename " + fileName +
+      " height " + height + " width " + width;
+  }
+
+  //////////////////////// inner classes ///////////////////////////////
+
+  /**
+   * Class for a data buffer that reads and writes the mapped file so
+   * that a BufferedImage can use the pixels in place
+   */
+  private class MappedDataBuffer extends DataBuffer
+  {
+    /**
+     * Constructor that makes a buffer with one int for each pixel
+     */
+    public MappedDataBuffer()
+    {
+      super(DataBuffer.TYPE_INT, width * height);
+    }
+
+    /**
+     * Method to get a pixel value
+     * @param bank the bank (there is only one)
+     * @param i the index of the pixel in row-major order
+     * @return the pixel value
+     */
+    public int getElem(int bank, int i)
+    {
+      return chunks[i / width / rowsPerChunk].get(i % (width * rowsPerChunk));
+    }
+
+    /**
+     * Method to set a pixel value
+     * @param bank the bank (there is only one)
+     * @param i the index of the pixel in row-major order
+     * @param value the new pixel value
+     */
+    public void setElem(int bank, int i, int value)
+    {
+      chunks[i / width / rowsPerChunk].put(i % (width * rowsPerChunk), value);
+    }
+  }
+
+  /**
+   * Class for a data buffer that an image reader decodes a whole image
+   * into but that only keeps a window of rows.  When the reader starts
+   * a row below the window the rows at the top are finished, so they
+   * are copied into the mapped picture and the window moves down.  If
+   * the reader goes back to a row above the window (an interlaced
+   * image) the read is stopped.
+   */
+  private static class RowWindowBuffer extends DataBuffer
+  {
+    /** the number of elements in each row */
+    private int stride;
+
+    /** the number of rows in the window */
+    private int windowRows;
+
+    /** the first row in the window */
+    private int firstRow;
+
+    /** the elements of the rows in the window for each bank */
+    private int[][] window;
+
+    /** the reader decoding into this buffer */
+    private ImageReader reader;
+
+    /** the mapped picture the finished rows are copied into */
+    private MappedPicture picture;
+
+    /** the image that uses this buffer (to turn rows into pixels) */
+    private BufferedImage image;
+
+    /** the pixel values of the rows being copied */
+    private int[] values;
+
+    /** the index of the first element of the last row set */
+    private int rowStart;
+
+    /** where the last row set starts in the window */
+    private int rowOffset;
+
+    /** true if the banks are 8 bit red, green, blue (and alpha) */
+    private boolean rgbBytes;
+
+    /** the red elements of the window if the banks are 8 bit rgb */
+    private int[] redBank;
+
+    /** the green elements of the window if the banks are 8 bit rgb */
+    private int[] greenBank;
+
+    /** the blue elements of the window if the banks are 8 bit rgb */
+    private int[] blueBank;
+
+    /** the alpha elements of the window (null if there isn't alpha) */
+    private int[] alphaBank;
+
+    /** true if the reader went back to a row above the window */
+    private boolean outOfOrder;
+
+    /**
+     * Constructor that takes the layout of the image and where to
+     * copy the rows to
+     * @param sampleModel the sample model of the image
+     * @param stride the number of elements in each row
+     * @param height the number of rows in the image
+     * @param windowRows the number of rows to keep
+     * @param reader the reader decoding into this buffer
+     * @param picture the mapped picture to copy the rows into
+     */
+    public RowWindowBuffer(SampleModel sampleModel, int stride, int height,
+                           int windowRows, ImageReader reader,
+                           MappedPicture picture)
+    {
+      super(sampleModel.getDataType(), stride * height,
+            sampleModel instanceof BandedSampleModel ?
+              sampleModel.getNumBands() : 1);
+      this.stride = stride;
+      this.windowRows = Math.min(windowRows, height);
+      rowStart = -stride;
+      this.reader = reader;
+      this.picture = picture;
+      window = new int[getNumBanks()][stride * this.windowRows];
+      values = new int[picture.width * this.windowRows];
+    }
+
+    /**
+     * Method to set the image that uses this buffer
+     * @param image the image
+     */
+    public void setImage(BufferedImage image)
+    {
+      this.image = image;
+      ColorModel colorModel = image.getColorModel();
+      int banks = getNumBanks();
+      rgbBytes = colorModel instanceof ComponentColorModel &&
+        colorModel.getColorSpace().isCS_sRGB() &&
+        getDataType() == DataBuffer.TYPE_BYTE &&
+        !colorModel.isAlphaPremultiplied() &&
+        (banks == 3 || (banks == 4 && colorModel.hasAlpha()));
+      if (rgbBytes)
+      {
+        redBank = window[0];
+        greenBank = window[1];
+        blueBank = window[2];
+        alphaBank = (banks == 4) ? window[3] : null;
+      }
+    }
+
+    /**
+     * Method to get the image that uses this buffer
+     * @return the image
+     */
+    public BufferedImage getImage()
+    {
+      return image;
+    }
+
+    /**
+     * Method to check if the reader went back to a row above the
+     * window, so not all the rows were copied
+     * @return true if the rows weren't decoded in order
+     */
+    public boolean isOutOfOrder()
+    {
+      return outOfOrder;
+    }
+
+    /**
+     * Method to get an element
+     * @param bank the bank
+     * @param i the index of the element
+     * @return the element or 0 if its row isn't in the window
+     */
+    public int getElem(int bank, int i)
+    {
+      int row = i / stride;
+      if (row < firstRow || row >= firstRow + windowRows)
+        return 0;
+      return window[bank][(row % windowRows) * stride + i % stride];
+    }
+
+    /**
+     * Method to set an element, first copying the rows at the top of
+     * the window into the picture if the element is below the window
+     * @param bank the bank
+     * @param i the index of the element
+     * @param value the new element
+     */
+    public void setElem(int bank, int i, int value)
+    {
+      if (i >= rowStart && i < rowStart + stride)
+      {
+        window[bank][rowOffset + i - rowStart] = value;
+        return;
+      }
+      if (outOfOrder)
+        return;
+      int row = i / stride;
+      if (row < firstRow)
+      {
+        outOfOrder = true;
+        reader.abort();
+        return;
+      }
+      if (row >= firstRow + windowRows)
+        copyRows(Math.max(row - windowRows + 1,
+                          firstRow + (windowRows + 1) / 2));
+      rowStart = row * stride;
+      rowOffset = (row % windowRows) * stride;
+      window[bank][rowOffset + i - rowStart] = value;
+    }
+
+    /**
+     * Method to copy the rows left in the window into the picture
+     * after the image has been decoded
+     */
+    public void finish()
+    {
+      copyRows(picture.height);
+    }
+
+    /**
+     * Method to copy the rows from the top of the window up to a row
+     * into the picture and move the window down to start at that row
+     * @param endRow the row to move the window to
+     */
+    private void copyRows(int endRow)
+    {
+      int width = picture.width;
+      int rows = Math.min(endRow, firstRow + windowRows) - firstRow;
+      if (rows > 0 && rgbBytes)
+      {
+        // 8 bit red, green, blue (and alpha) banks
+        for (int r = 0; r < rows; r++)
+        {
+          int offset = ((firstRow + r) % windowRows) * stride;
+          for (int x = 0, i = r * width; x < width; x++, i++)
+          {
+            int alpha = alphaBank != null ? alphaBank[offset + x] : 255;
+            values[i] = (alpha << 24) | (redBank[offset + x] << 16) |
+              (greenBank[offset + x] << 8) | blueBank[offset + x];
+          }
+        }
+        picture.setBasicPixels(0, firstRow, width, rows, values, 0, width);
+      }
+      else if (rows > 0)
+      {
+        values = image.getRGB(0, firstRow, width, rows, values, 0, width);
+        picture.setBasicPixels(0, firstRow, width, rows, values, 0, width);
+      }
+      firstRow = endRow;
+    }
+  }
+
+}
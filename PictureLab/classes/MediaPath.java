@@ -0,0 +1,49 @@
+import java.io.File;
+import java.net.URL;
+import java.net.URLDecoder;
+
+/**
+ * Class that finds the media directory (the images directory next to
+ * the classes) so pictures can be opened by their name alone.  It is
+ * kept apart from FileChooser so that finding a file doesn't load any
+ * Swing or AWT window classes, which matters in headless mode.
+ */
+public class MediaPath
+{
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to get the full path for the passed file name
+   * @param fileName the name of a file
+   * @return the full path for the file
+   */
+  public static String getMediaPath(String fileName)
+  {
+    return getMediaDirectory() + fileName;
+  }
+
+  /**
+   * Method to get the directory for the media
+   * @return the media directory
+   */
+  public static String getMediaDirectory()
+  {
+    String directory = null;
+
+    // try to find the images directory
+    try {
+      // get the URL for where we loaded this class
+      URL classURL = MediaPath.class.getResource("MediaPath.class");
+      URL fileURL = new URL(classURL, "../images/");
+      directory = fileURL.getPath();
+      directory = URLDecoder.decode(directory, "UTF-8");
+      if (new File(directory).exists())
+        return directory;
+    } catch (Exception ex) {
+    }
+
+    return directory;
+  }
+
+}
@@ -0,0 +1,249 @@
+import java.awt.Image;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class that keeps smaller copies of a picture for showing it zoomed
+ * out.  Level 0 is the picture itself and each level after that is half
+ * the width and height of the one before it (each pixel is the average
+ * of a 2 by 2 block), so all of the levels together take at most one
+ * third more memory than the picture.
+ *
+ * Levels are only made when they are first asked for and they are made
+ * on a background thread.  Until a level is ready the closest bigger
+ * level is used instead.  A picture that isn't on the heap (like a
+ * MappedPicture) only gets the small levels, made straight from the
+ * picture, and is drawn scaled down at the scales in between.
+ */
+public class MipmapPyramid
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the thread that makes the levels for all pyramids */
+  private static final ExecutorService builder =
+    Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "MipmapPyramid builder");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  /** the picture (level 0) */
+  private DigitalPicture picture;
+
+  /** the most pixels in a level made for a picture that isn't on the heap */
+  private static final long MAX_COPY_PIXELS = 1 << 24;
+
+  /** the levels made so far (null if not made yet), starting with the picture */
+  private List<DigitalPicture> levels = new ArrayList<DigitalPicture>();
+
+  /** the levels that have been asked for but aren't made yet */
+  private TreeSet<Integer> wanted = new TreeSet<Integer>();
+
+  /** the code to run when the levels being made are ready */
+  private List<Runnable> waiting = new ArrayList<Runnable>();
+
+  /** true if the builder is making levels */
+  private boolean building;
+
+  /** changed each time the picture changes so old work is thrown away */
+  private int generation;
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that takes the picture
+   * @param picture the picture to make smaller copies of
+   */
+  public MipmapPyramid(DigitalPicture picture)
+  {
+    this.picture = picture;
+    levels.add(picture);
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to get the number of levels there can be.  The last level
+   * is 1 pixel wide or 1 pixel high.
+   * @return the number of levels including level 0
+   */
+  public int getLevelCount()
+  {
+    int count = 1;
+    int width = picture.getWidth();
+    int height = picture.getHeight();
+    while (width > 1 && height > 1)
+    {
+      width /= 2;
+      height /= 2;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Method to find the level to use to show the picture at a scale.  It
+   * is the smallest level that is at least as big as the scale, so the
+   * level never has to be shrunk by more than half to draw it.
+   * @param scale the scale to show the picture at (1 is full size)
+   * @return the level to use
+   */
+  public int getLevelFor(double scale)
+  {
+    int level = 0;
+    int last = getLevelCount() - 1;
+    while (level < last &&
+           (double) (picture.getWidth() >> (level + 1)) /
+           picture.getWidth() >= scale)
+      level++;
+    return level;
+  }
+
+  /**
+   * Method to get the image to draw to show the picture at a scale.
+   * If the best level isn't ready yet the closest bigger level that is
+   * ready is returned and the best level is made in the background.
+   * @param scale the scale to show the picture at (1 is full size)
+   * @param whenReady the code to run (on the builder thread) when the
+   * levels being made are ready, or null
+   * @return the image of the best level that is ready now
+   */
+  public synchronized Image getImage(double scale, Runnable whenReady)
+  {
+    int level = getLevelFor(scale);
+
+    // a picture that isn't on the heap is drawn scaled down instead of
+    // making a copy of it that is too big
+    if (!(picture instanceof SimplePicture) &&
+        (long) (picture.getWidth() >> level) * (picture.getHeight() >> level) >
+        MAX_COPY_PIXELS)
+      level = 0;
+    if (getLevel(level) != null)
+      return getLevel(level).getImage();
+
+    // make the level in the background and use a bigger one for now
+    wanted.add(level);
+    if (whenReady != null)
+      waiting.add(whenReady);
+    if (!building)
+    {
+      building = true;
+      final int startGeneration = generation;
+      builder.execute(() -> buildLevels(startGeneration));
+    }
+    while (getLevel(level) == null)
+      level--;
+    return getLevel(level).getImage();
+  }
+
+  /**
+   * Method to get a level if it has been made
+   * @param level the level
+   * @return the level or null if it isn't made
+   */
+  private DigitalPicture getLevel(int level)
+  {
+    return (level < levels.size()) ? levels.get(level) : null;
+  }
+
+  /**
+   * Method to make levels until all the wanted levels are ready and then
+   * run the code that was waiting for them.  If making a level fails
+   * the levels that were asked for are forgotten so they can be asked
+   * for again.
+   * @param startGeneration the generation when the work was asked for
+   */
+  private void buildLevels(int startGeneration)
+  {
+    List<Runnable> ready = null;
+    try {
+      ready = makeWantedLevels(startGeneration);
+    } finally {
+      synchronized (this)
+      {
+        if (ready == null && generation == startGeneration)
+        {
+          building = false;
+          wanted.clear();
+          waiting.clear();
+        }
+      }
+    }
+    for (Runnable whenReady : ready)
+      whenReady.run();
+  }
+
+  /**
+   * Method to make levels until all the wanted levels are ready.  For a
+   * picture on the heap each level is made from the one before it.  For
+   * other pictures (like a MappedPicture) a wanted level is made straight
+   * from the smallest bigger level that is ready, so no big copy of the
+   * picture is made on the heap.
+   * @param startGeneration the generation when the work was asked for
+   * @return the code waiting for the levels (empty if the picture
+   * changed and a new builder owns the levels)
+   */
+  private List<Runnable> makeWantedLevels(int startGeneration)
+  {
+    Resampler resampler = new Resampler(Resampler.Filter.BOX);
+    while (true)
+    {
+      DigitalPicture source;
+      int level;
+      synchronized (this)
+      {
+        // stop if the picture changed (a new builder owns the levels)
+        if (generation != startGeneration)
+          return new ArrayList<Runnable>();
+        while (!wanted.isEmpty() && getLevel(wanted.first()) != null)
+          wanted.remove(wanted.first());
+        if (wanted.isEmpty())
+        {
+          building = false;
+          List<Runnable> ready = new ArrayList<Runnable>(waiting);
+          waiting.clear();
+          return ready;
+        }
+        level = wanted.first();
+        int sourceLevel = level - 1;
+        while (getLevel(sourceLevel) == null)
+          sourceLevel--;
+        if (picture instanceof SimplePicture)
+          level = sourceLevel + 1;
+        source = levels.get(sourceLevel);
+      }
+
+      // make the level without holding the lock
+      DigitalPicture next =
+        resampler.resize(source, Math.max(1, picture.getWidth() >> level),
+                         Math.max(1, picture.getHeight() >> level));
+      synchronized (this)
+      {
+        if (generation == startGeneration)
+        {
+          while (levels.size() <= level)
+            levels.add(null);
+          levels.set(level, next);
+        }
+      }
+    }
+  }
+
+  /**
+   * Method to throw away the smaller levels after the picture has
+   * changed.  They are made again when they are next asked for.
+   */
+  public synchronized void invalidate()
+  {
+    generation++;
+    building = false;
+    wanted.clear();
+    waiting.clear();
+    levels.subList(1, levels.size()).clear();
+  }
+
+}
@@ -2,6 +2,8 @@ import java.awt.*;
 import java.awt.font.*;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.text.*;
 import java.util.*;
 import java.awt.Color;
@@ -39,6 +41,31 @@ public class Picture extends SimplePicture
     super(fileName);
   }
   
+  /**
+   * Constructor that takes a file name and only decodes part of it
+   * and/or every nth pixel.  For example new Picture("beach.jpg", null, 2)
+   * makes a half size picture without decoding the full size one.
+   * @param fileName the name of the file to create the picture from
+   * @param region the part of the file to decode (null for all of it)
+   * @param subsampling keep every subsampling pixel in x and y
+   */
+  public Picture(String fileName, Rectangle region, int subsampling)
+  {
+    // let the parent class handle this fileName
+    super(fileName, region, subsampling);
+  }
+  
+  /**
+   * Constructor that reads a picture file without putting it in the
+   * image cache, for code that reads each file only once
+   * @param file the file to read
+   * @throws IOException if the file can't be read as a picture
+   */
+  public Picture(File file) throws IOException
+  {
+    super(file);
+  }
+  
   /**
    * Constructor that takes the width and height
    * @param height the height of the desired picture
@@ -86,67 +113,60 @@ public class Picture extends SimplePicture
     
   }
   
+  /**
+   * Method to apply a point operation to every pixel in this picture.
+   * Big pictures are split into bands of rows that are processed in 
+   * parallel by the default PixelProcessor.
+   * @param operation the operation to apply
+   */
+  public void applyOperation(PointOperation operation)
+  {
+    PixelProcessor.getDefault().apply(this, operation);
+  }
+  
+  /**
+   * Method to apply a point operation as a named filter, recording
+   * the call in the picture metrics
+   * @param name the name of the filter
+   * @param operation the operation to apply
+   */
+  private void applyFilter(String name, PointOperation operation)
+  {
+    PictureMetrics.Sample sample = PictureMetrics.start(name);
+    this.applyOperation(operation);
+    sample.stop(this.getWidth(), this.getHeight());
+  }
+  
+  /**
+   * Method to start a chain of filters on this picture that are all 
+   * applied in one pass when apply is called.  For example
+   * picture.chain().grayscale().sepia().apply();
+   * @return a new filter chain for this picture
+   */
+  public FilterChain chain()
+  {
+    return new FilterChain(this);
+  }
+  
   /** Method to set the blue to 0 */
   public void zeroBlue()
   {
-    Pixel[][] pixels = this.getPixels2D();
-    for (Pixel[] rowArray : pixels)
-    {
-      for (Pixel pixelObj : rowArray)
-      {
-        pixelObj.setBlue(0);
-      }
-    }
+    this.applyFilter("zeroBlue", PointOperations.zeroBlue());
   }
   
   public void keepOnlyBlue()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      for(Pixel[] rowArray : pixels)
-      {
-          for(Pixel pixelObj : rowArray)
-          {
-              pixelObj.setRed(0);
-              pixelObj.setGreen(0);
-          }
-      }
+      this.applyFilter("keepOnlyBlue", PointOperations.keepOnlyBlue());
   }
   
   public void negate()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      for(Pixel[] rowArray : pixels)
-      {
-          for(Pixel pixelObj : rowArray)
-          {
-              int red = pixelObj.getRed();
-              pixelObj.setRed(255-red);
-              
-              int green = pixelObj.getGreen();
-              pixelObj.setGreen(255-green);
-              
-              int blue = pixelObj.getBlue();
-              pixelObj.setBlue(255-blue);
-          }
-      }
+      this.applyFilter("negate", PointOperations.negate());
   }
   
   public void grayscale()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      for(Pixel[] rowArray : pixels)
-      {
-          for(Pixel pixelObj : rowArray)
-          {
-              int total = pixelObj.getRed() + pixelObj.getBlue() + 
-                          pixelObj.getGreen();
-              int avg = total / 3;
-              
-              pixelObj.setRed(avg);
-              pixelObj.setBlue(avg);
-              pixelObj.setGreen(avg);
-          }
-      }
+      this.applyFilter("grayscale", PointOperations.grayscale());
   }
   
   /**
@@ -154,29 +174,14 @@ public class Picture extends SimplePicture
    */
   public void fixUnderwater()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      Pixel pixel = null;
-      for(Pixel[] rowArray : pixels)
-      {
-          for(Pixel pixelObj : rowArray)
-          {
-              if(pixelObj.getBlue() > pixelObj.getGreen())
-              {
-                  pixelObj.setBlue(pixelObj.getBlue() + 20);
-              }
-              else
-              {
-                  pixelObj.setBlue(pixelObj.getBlue() - 20);
-              }
-          }
-      }
+      this.applyFilter("fixUnderwater", PointOperations.fixUnderwater());
   }
   
   /**
    * Copy a region of the specified source Picture object into this
    *    Picture object at the specified location.
-   *    Make sure destination Picture object is large enough to 
-   *    fit copied Picture
+   *    Any part of the region that is outside of either picture
+   *    is skipped.
    *    
    * @param sourcePicture       the source picture
    * @param startSourceRow      the row the source picture starts in
@@ -190,22 +195,13 @@ public class Picture extends SimplePicture
             int endSourceRow, int startSourceCol, int endSourceCol,
             int startDestRow, int startDestCol )
   {
-      Pixel[][] pixels = sourcePicture.getPixels2D();
-      Pixel[][] destPixels = this.getPixels2D();
-      Pixel sourcePixel = null;
-      Pixel destPixel = null;
-      
-      
-      for(int row = startSourceRow; row<= endSourceRow; row++)
-      {
-          for(int col = startSourceCol; col<= endSourceCol; col++)
-          {
-              sourcePixel = pixels[row][col];
-              destPixel = destPixels[row + (startDestRow - startSourceRow)][col
-                            + (startDestCol - startSourceCol)];
-              destPixel.setColor(sourcePixel.getColor());
-          }
-      }
+      PictureMetrics.Sample sample = PictureMetrics.start("cropAndCopy");
+      Rectangle copied = 
+        new Blitter().copy(sourcePicture, startSourceCol, startSourceRow,
+                           endSourceCol - startSourceCol + 1,
+                           endSourceRow - startSourceRow + 1,
+                           this, startDestCol, startDestRow);
+      sample.stop(copied.width, copied.height);
   }
   
   /**
@@ -215,47 +211,35 @@ public class Picture extends SimplePicture
    */
   public Picture scaleByHalf()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      int height = this.getHeight();
-      int width = this.getWidth();
-      
-      Pixel[][] destPixels = this.getPixels2D();
-      Pixel sourcePixel = null;
-      Pixel destPixel = null;
-      
-      Picture canvas = new Picture(height/2, width/2);
-
-      for(int row=0; row<pixels.length; row++)
-      {
-          for(int col = 0; col<pixels[0].length; col++)
-          {
-              sourcePixel = pixels[row][col];
-              destPixel = destPixels[row/2][col/2];
-              destPixel.setColor(sourcePixel.getColor());
-          }
-      }
-      canvas.cropAndCopy(this, 0,0,height/2,width/2, 0,0);
-      return canvas;
+      // each new pixel is the average of a 2 by 2 block of pixels
+      PictureMetrics.Sample sample = PictureMetrics.start("scaleByHalf");
+      Resampler resampler = new Resampler(Resampler.Filter.BOX);
+      Picture result = 
+        resampler.resize(this, this.getWidth() / 2, this.getHeight() / 2);
+      sample.stop(this.getWidth(), this.getHeight());
+      return result;
   }
+
   
   /** Method that mirrors the picture around a 
     * vertical mirror in the center of the picture
     * from left to right */
   public void mirrorVertical()
   {
-    Pixel[][] pixels = this.getPixels2D();
-    Pixel leftPixel = null;
-    Pixel rightPixel = null;
-    int width = pixels[0].length;
-    for (int row = 0; row < pixels.length; row++)
+    PictureMetrics.Sample sample = PictureMetrics.start("mirrorVertical");
+    int width = this.getWidth();
+    int[] rowValues = new int[width];
+    for (int row = 0; row < this.getHeight(); row++)
     {
+      this.getBasicPixelRow(row, rowValues);
       for (int col = 0; col < width / 2; col++)
       {
-        leftPixel = pixels[row][col];
-        rightPixel = pixels[row][width - 1 - col];
-        rightPixel.setColor(leftPixel.getColor());
+        rowValues[width - 1 - col] = 
+          Pixel.withColor(rowValues[width - 1 - col], rowValues[col]);
       }
+      this.setBasicPixelRow(row, rowValues);
     } 
+    sample.stop(this.getWidth(), this.getHeight());
   }
   
   /**
@@ -263,18 +247,21 @@ public class Picture extends SimplePicture
    */
   public void mirrorVerticalRightToLeft()
   {
-    Pixel leftPixel = null;
-    Pixel rightPixel = null;
+    PictureMetrics.Sample sample = 
+      PictureMetrics.start("mirrorVerticalRightToLeft");
     int width = this.getWidth();
+    int[] rowValues = new int[width];
     for (int row = 0; row < this.getHeight(); row++)
     {
+      this.getBasicPixelRow(row, rowValues);
       for (int col = 0; col < width / 2; col++)
       {
-        leftPixel = this.getPixel(col, row);
-        rightPixel = this.getPixel(width - 1 - col, row);
-        leftPixel.setColor(rightPixel.getColor());
+        rowValues[col] = 
+          Pixel.withColor(rowValues[col], rowValues[width - 1 - col]);
       }
+      this.setBasicPixelRow(row, rowValues);
     } 
+    sample.stop(this.getWidth(), this.getHeight());
   }
   
   /**
@@ -283,18 +270,21 @@ public class Picture extends SimplePicture
    */
   public void mirrorHorizontal()
   {
-    Pixel[][] pixels = this.getPixels2D();
-    Pixel topPixel = null;
-    Pixel bottomPixel = null;
-    for (int row = 0; row < pixels.length / 2; row++)
+    PictureMetrics.Sample sample = PictureMetrics.start("mirrorHorizontal");
+    int height = this.getHeight();
+    int[] topValues = new int[this.getWidth()];
+    int[] bottomValues = new int[this.getWidth()];
+    for (int row = 0; row < height / 2; row++)
     {
-      for (int col = 0; col < pixels[0].length; col++)
+      this.getBasicPixelRow(row, topValues);
+      this.getBasicPixelRow(height - 1 - row, bottomValues);
+      for (int col = 0; col < topValues.length; col++)
       {
-        topPixel = pixels[row][col];
-        bottomPixel = pixels[pixels.length - 1 - row][col];
-        bottomPixel.setColor(topPixel.getColor());
+        bottomValues[col] = Pixel.withColor(bottomValues[col], topValues[col]);
       }
+      this.setBasicPixelRow(height - 1 - row, bottomValues);
     } 
+    sample.stop(this.getWidth(), this.getHeight());
   }
   
   /**
@@ -304,11 +294,10 @@ public class Picture extends SimplePicture
    */
   public void mirrorDiagonal()
   {
-    Pixel[][] pixels = this.getPixels2D();
-    Pixel leftPixel = null;
-    Pixel rightPixel = null;
-    int numOfRows = pixels.length;
-    int numOfCols = pixels[0].length;
+    Pixel leftPixel = this.getPixel(0, 0);
+    Pixel rightPixel = this.getPixel(0, 0);
+    int numOfRows = this.getHeight();
+    int numOfCols = this.getWidth();
     int bounds = 0;
     if(numOfRows>numOfCols)
     {
@@ -323,8 +312,8 @@ public class Picture extends SimplePicture
     {
       for (int col = 0; col < bounds; col++)
       {
-        leftPixel = pixels[row][col];
-        rightPixel = pixels[col][row];
+        leftPixel.moveTo(col, row);
+        rightPixel.moveTo(row, col);
         rightPixel.setColor(leftPixel.getColor());
       }
     } 
@@ -335,10 +324,9 @@ public class Picture extends SimplePicture
   public void mirrorTemple()
   {
     int mirrorPoint = 276;
-    Pixel leftPixel = null;
-    Pixel rightPixel = null;
+    Pixel leftPixel = this.getPixel(0, 0);
+    Pixel rightPixel = this.getPixel(0, 0);
     int count = 0;
-    Pixel[][] pixels = this.getPixels2D();
     
     // loop through the rows
     for (int row = 27; row < 97; row++)
@@ -347,9 +335,8 @@ public class Picture extends SimplePicture
       for (int col = 13; col < mirrorPoint; col++)
       {
         count++;
-        leftPixel = pixels[row][col];      
-        rightPixel = pixels[row]                       
-                         [mirrorPoint - col + mirrorPoint];
+        leftPixel.moveTo(col, row);
+        rightPixel.moveTo(mirrorPoint - col + mirrorPoint, row);
         rightPixel.setColor(leftPixel.getColor());
       }
     }
@@ -364,16 +351,15 @@ public class Picture extends SimplePicture
     // 159<row<192
     // 105<col<293
     int mirrorPoint = 194;
-    Pixel topPixel = null;
-    Pixel bottomPixel = null;
-    Pixel[][] pixels = this.getPixels2D();
+    Pixel topPixel = this.getPixel(0, 0);
+    Pixel bottomPixel = this.getPixel(0, 0);
     
     for (int row = 159; row < mirrorPoint; row++)
     {
       for (int col = 105; col < 293; col++)
       {
-        topPixel = pixels[row][col];      
-        bottomPixel = pixels[mirrorPoint - row + mirrorPoint][col];
+        topPixel.moveTo(col, row);
+        bottomPixel.moveTo(col, mirrorPoint - row + mirrorPoint);
         bottomPixel.setColor(topPixel.getColor());
       }
     }
@@ -387,17 +373,15 @@ public class Picture extends SimplePicture
       // 234<row<320
       // 237<col<344
       int mirrorPoint = 344;
-      Pixel leftPixel = null;
-      Pixel rightPixel = null;
-      Pixel[][] pixels = this.getPixels2D();
+      Pixel leftPixel = this.getPixel(0, 0);
+      Pixel rightPixel = this.getPixel(0, 0);
       
       for (int row = 234; row < 320; row++)
       {
           for (int col = 237; col < mirrorPoint; col++)
           {
-            leftPixel = pixels[row][col];      
-            rightPixel = pixels[row]                       
-                             [mirrorPoint - col + mirrorPoint];
+            leftPixel.moveTo(col, row);
+            rightPixel.moveTo(mirrorPoint - col + mirrorPoint, row);
             rightPixel.setColor(leftPixel.getColor());
           }
       }
@@ -413,25 +397,10 @@ public class Picture extends SimplePicture
   public void copy(Picture fromPic, 
                  int startRow, int startCol)
   {
-    Pixel fromPixel = null;
-    Pixel toPixel = null;
-    Pixel[][] toPixels = this.getPixels2D();
-    Pixel[][] fromPixels = fromPic.getPixels2D();
-    for (int fromRow = 0, toRow = startRow; 
-         fromRow < fromPixels.length &&
-         toRow < toPixels.length; 
-         fromRow++, toRow++)
-    {
-      for (int fromCol = 0, toCol = startCol; 
-           fromCol < fromPixels[0].length &&
-           toCol < toPixels[0].length;  
-           fromCol++, toCol++)
-      {
-        fromPixel = fromPixels[fromRow][fromCol];
-        toPixel = toPixels[toRow][toCol];
-        toPixel.setColor(fromPixel.getColor());
-      }
-    }   
+    // the parts of fromPic outside of this picture are skipped
+    PictureMetrics.Sample sample = PictureMetrics.start("copy");
+    Rectangle copied = new Blitter().copy(fromPic, this, startCol, startRow);
+    sample.stop(copied.width, copied.height);
   }
 
   /** Method to create a collage of several pictures */
@@ -445,8 +414,7 @@ public class Picture extends SimplePicture
     
     this.cropAndCopy(gtech,16,255,0,255,0,0);   //original image
     
-    gtech2.grayscale();
-    gtech2.sepia();
+    gtech2.chain().grayscale().sepia().apply();
     this.cropAndCopy(gtech2,16,255,0,255,0,255);
     
     gtech3.negate();
@@ -465,53 +433,12 @@ public class Picture extends SimplePicture
    */
   public void sepia()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      for(Pixel[] rowArray : pixels)
-      {
-          for(Pixel pixelObj : rowArray)
-          {
-              if(pixelObj.getRed() < 60)
-              {
-                  pixelObj.setRed( (int) (pixelObj.getRed() * .9));
-                  pixelObj.setBlue( (int) (pixelObj.getBlue() * .9));
-                  pixelObj.setGreen( (int) (pixelObj.getGreen() * .9));
-              }
-              else if(pixelObj.getRed() < 190)
-              {
-                  pixelObj.setBlue( (int) (pixelObj.getBlue() * .8));
-              }
-              else
-              {
-                  pixelObj.setBlue( (int) (pixelObj.getBlue() *.9));
-              }
-          }
-      }
+      this.applyFilter("sepia", PointOperations.sepia());
   }
   
   public void moreRed()
   {
-      Pixel[][] pixels = this.getPixels2D();
-      for(Pixel[] rowArray : pixels)
-      {
-          for(Pixel pixelObj : rowArray)
-          {
-              if(pixelObj.getBlue() < 100)
-              {
-                  pixelObj.setRed( (int) (pixelObj.getRed() * 1.1));
-                  pixelObj.setBlue( (int) (pixelObj.getBlue() * .9));
-                  pixelObj.setGreen( (int) (pixelObj.getGreen() * 1.05));
-              }
-              else if(pixelObj.getBlue() < 200)
-              {
-                  pixelObj.setBlue( (int) (pixelObj.getBlue() * .8));
-                  pixelObj.setGreen( (int) (pixelObj.getGreen() * .9));
-              }
-              else
-              {
-                  pixelObj.setRed( (int) (pixelObj.getRed() * 1.1));
-              }
-          }
-      }
+      this.applyFilter("moreRed", PointOperations.moreRed());
   }
   
   /** Method to show large changes in color 
@@ -519,30 +446,19 @@ public class Picture extends SimplePicture
     */
   public void edgeDetection(int edgeDist)
   {
-    Pixel leftPixel = null;
-    Pixel rightPixel = null;
-    Pixel[][] pixels = this.getPixels2D();
-    Color rightColor = null;
-    for (int row = 0; row < pixels.length; row++)
-    {
-      for (int col = 0; 
-           col < pixels[0].length-1; col++)
-      {
-        leftPixel = pixels[row][col];
-        rightPixel = pixels[row][col+1];
-        rightColor = rightPixel.getColor();
-        double avgLeft = leftPixel.getAverage();
-        double avgRight = rightPixel.getAverage();
-        
-        double distance = Math.abs(avgLeft - avgRight);
-        
-        if (leftPixel.colorDistance(rightColor) > 
-            edgeDist)
-          leftPixel.setColor(Color.WHITE);
-        else
-          leftPixel.setColor(Color.BLACK);
-      }
-    }
+    edgeDetection(edgeDist, EdgeDetector.Mode.HORIZONTAL);
+  }
+  
+  /** Method to show large changes in color using the passed
+    * way of comparing pixels
+    * @param edgeDist the distance for finding edges
+    * @param mode the way to compare the pixels
+    */
+  public void edgeDetection(int edgeDist, EdgeDetector.Mode mode)
+  {
+    PictureMetrics.Sample sample = PictureMetrics.start("edgeDetection");
+    new EdgeDetector(edgeDist, mode).apply(this);
+    sample.stop(this.getWidth(), this.getHeight());
   }
   
   
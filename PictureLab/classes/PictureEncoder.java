@@ -0,0 +1,352 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Class that encodes pictures in a format like jpg or png with settings
+ * that can be changed: the JPEG quality, progressive JPEGs and the PNG
+ * compression level.  Lower quality and less compression are faster to
+ * encode.  For example:
+ * <pre>
+ *   PictureEncoder encoder = new PictureEncoder("jpg");
+ *   encoder.setQuality(0.9f);
+ *   long bytes = encoder.encode(picture, new File("beach-small.jpg"));
+ * </pre>
+ *
+ * Finding an ImageWriter is slow, so the writer for each format is
+ * found once and a few idle writers of each format are kept to be used
+ * again by any thread (the rest are disposed of when they are done).
+ * The encoded bytes are buffered in memory instead of in a cache file.
+ * One encoder can be used by many threads at once as long as its
+ * settings aren't changed while it is encoding.
+ */
+public class PictureEncoder
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the most idle writers to keep for each format */
+  private static final int MAX_IDLE_WRITERS =
+    Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  /** the writer pools by format name */
+  private static final Map<String,WriterPool> pools =
+    new ConcurrentHashMap<String,WriterPool>();
+
+  /** the format to encode in (like "jpg" or "png") */
+  private String format;
+
+  /** the writers for the format */
+  private WriterPool pool;
+
+  /** the quality from 0 to 1 (negative to use the writer's default) */
+  private float quality = -1;
+
+  /** true to write a progressive image if the format has them */
+  private boolean progressive;
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that takes the format to encode in
+   * @param format the format name like "jpg", "png", "gif" or "bmp"
+   * @throws IllegalArgumentException if there is no writer for the format
+   */
+  public PictureEncoder(String format)
+  {
+    this.format = format.toLowerCase();
+    pool = pools.computeIfAbsent(this.format, name -> new WriterPool(name));
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to get the format
+   * @return the format name
+   */
+  public String getFormat() { return format; }
+
+  /**
+   * Method to check if a file extension is one for the format of this
+   * encoder, like "jpeg" for a "jpg" encoder
+   * @param extension the file extension without the dot
+   * @return true if files with the extension are in this format
+   */
+  public boolean isFormatFor(String extension)
+  {
+    for (String suffix : pool.provider.getFileSuffixes())
+      if (suffix.equalsIgnoreCase(extension))
+        return true;
+    return format.equalsIgnoreCase(extension);
+  }
+
+  /**
+   * Method to get the quality
+   * @return the quality from 0 to 1, or a negative number if the
+   * writer's default is used
+   */
+  public float getQuality() { return quality; }
+
+  /**
+   * Method to set the quality.  For JPEG 1 is the best quality and the
+   * biggest file.  For lossless formats like PNG the quality is how fast
+   * to compress, where 1 is fastest and biggest.
+   * @param quality the quality from 0 to 1 (negative to use the writer's
+   * default)
+   */
+  public void setQuality(float quality)
+  {
+    if (quality > 1)
+      throw new IllegalArgumentException("the quality can't be more than 1");
+    this.quality = quality;
+  }
+
+  /**
+   * Method to set the PNG compression level like zlib does.  This is
+   * the same as setting the quality to 1 - level / 9.
+   * @param level 0 (fastest, no compression) to 9 (smallest file)
+   */
+  public void setCompressionLevel(int level)
+  {
+    if (level < 0 || level > 9)
+      throw new IllegalArgumentException("the level must be 0 to 9");
+    setQuality(1 - level / 9f);
+  }
+
+  /**
+   * Method to check if progressive images are written
+   * @return true if progressive images are written
+   */
+  public boolean isProgressive() { return progressive; }
+
+  /**
+   * Method to write progressive images (which show all of the picture
+   * blurry first and then sharpen as they load) if the format has them
+   * @param flag true to write progressive images
+   */
+  public void setProgressive(boolean flag) { progressive = flag; }
+
+  /**
+   * Method to encode a picture to a file
+   * @param picture the picture to encode
+   * @param file the file to write
+   * @return the number of bytes written
+   * @throws IOException if the file can't be written
+   */
+  public long encode(DigitalPicture picture, File file) throws IOException
+  {
+    try (OutputStream out =
+         new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))
+    {
+      return encode(picture, out);
+    }
+  }
+
+  /**
+   * Method to encode a picture to a channel.  The channel is not closed.
+   * @param picture the picture to encode
+   * @param channel the channel to write to
+   * @return the number of bytes written
+   * @throws IOException if the channel can't be written
+   */
+  public long encode(DigitalPicture picture, WritableByteChannel channel)
+    throws IOException
+  {
+    return encode(picture, Channels.newOutputStream(channel));
+  }
+
+  /**
+   * Method to encode a picture to a stream.  The stream is flushed but
+   * not closed.
+   * @param picture the picture to encode
+   * @param out the stream to write to
+   * @return the number of bytes written
+   * @throws IOException if the stream can't be written
+   */
+  public long encode(DigitalPicture picture, OutputStream out)
+    throws IOException
+  {
+    ImageWriter writer = pool.take();
+    CountingOutputStream counter = new CountingOutputStream(out);
+    ImageOutputStream imageOut = new MemoryCacheImageOutputStream(counter);
+    try {
+      BufferedImage image = getImageFor(writer, picture);
+      writer.setOutput(imageOut);
+      writer.write(null, new IIOImage(image, null, null), getParam(writer));
+      imageOut.flush();
+    } finally {
+      writer.reset();
+      pool.give(writer);
+      imageOut.close();
+    }
+    counter.flush();
+    return counter.count;
+  }
+
+  /**
+   * Method to make the write settings for a writer
+   * @param writer the writer
+   * @return the settings
+   */
+  private ImageWriteParam getParam(ImageWriter writer)
+  {
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    if (quality >= 0 && param.canWriteCompressed())
+    {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      if (param.getCompressionType() == null)
+        param.setCompressionType(param.getCompressionTypes()[0]);
+      param.setCompressionQuality(quality);
+    }
+    if (param.canWriteProgressive())
+      param.setProgressiveMode(progressive ? ImageWriteParam.MODE_DEFAULT :
+                               ImageWriteParam.MODE_DISABLED);
+    return param;
+  }
+
+  /**
+   * Method to get an image of the picture the writer can encode.  The
+   * picture's own image is used if it can be, else it is drawn on an
+   * image without alpha (JPEG and BMP can't have alpha).
+   * @param writer the writer
+   * @param picture the picture
+   * @return the image to encode
+   * @throws IOException if the writer can't encode the picture
+   */
+  private static BufferedImage getImageFor(ImageWriter writer,
+                                           DigitalPicture picture)
+    throws IOException
+  {
+    Image pictureImage = picture.getImage();
+    BufferedImage image = (pictureImage instanceof BufferedImage) ?
+      (BufferedImage) pictureImage : picture.getBufferedImage();
+    if (writer.getOriginatingProvider().canEncodeImage(image))
+      return image;
+    BufferedImage opaque = new BufferedImage(image.getWidth(),
+                                             image.getHeight(),
+                                             BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = opaque.createGraphics();
+    graphics.drawImage(image, 0, 0, null);
+    graphics.dispose();
+    if (!writer.getOriginatingProvider().canEncodeImage(opaque))
+      throw new IOException("can't write this picture as " +
+                            writer.getOriginatingProvider().getFormatNames()[0]);
+    return opaque;
+  }
+
+  //////////////////////// inner types ///////////////////////////////
+
+  /**
+   * Class for the idle writers of one format.  A writer is taken out
+   * while it encodes and given back after, and writers given back when
+   * the pool is full are disposed of.
+   */
+  private static class WriterPool
+  {
+    /** the service that makes writers for the format */
+    private final ImageWriterSpi provider;
+    /** the idle writers */
+    private final Queue<ImageWriter> idle = new ConcurrentLinkedQueue<ImageWriter>();
+    /** the number of idle writers */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Constructor that finds the writer service for a format
+     * @param format the format name
+     * @throws IllegalArgumentException if there is no writer for the
+     * format
+     */
+    private WriterPool(String format)
+    {
+      Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+      if (!writers.hasNext())
+        throw new IllegalArgumentException("can't write the format " + format);
+      ImageWriter writer = writers.next();
+      provider = writer.getOriginatingProvider();
+      give(writer);
+    }
+
+    /**
+     * Method to take an idle writer or make a new one
+     * @return the writer
+     * @throws IOException if a writer can't be made
+     */
+    private ImageWriter take() throws IOException
+    {
+      ImageWriter writer = idle.poll();
+      if (writer == null)
+        return provider.createWriterInstance();
+      idleCount.decrementAndGet();
+      return writer;
+    }
+
+    /**
+     * Method to give back a writer that is done
+     * @param writer the writer (already reset)
+     */
+    private void give(ImageWriter writer)
+    {
+      if (idleCount.incrementAndGet() <= MAX_IDLE_WRITERS)
+        idle.offer(writer);
+      else
+      {
+        idleCount.decrementAndGet();
+        writer.dispose();
+      }
+    }
+  }
+
+  /**
+   * Class for a stream that counts the bytes written through it and
+   * doesn't close the stream under it
+   */
+  private static class CountingOutputStream extends FilterOutputStream
+  {
+    /** the number of bytes written */
+    private long count;
+
+    private CountingOutputStream(OutputStream out)
+    {
+      super(out);
+    }
+
+    public void write(int b) throws IOException
+    {
+      out.write(b);
+      count++;
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException
+    {
+      out.write(bytes, offset, length);
+      count += length;
+    }
+
+    public void close() throws IOException
+    {
+      flush();
+    }
+  }
+
+}
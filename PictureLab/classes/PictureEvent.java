@@ -0,0 +1,137 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Interface for the JDK Flight Recorder events made by the picture
+ * operations, so a recording shows each load, write and filter next to
+ * the garbage collection and file activity.  The events are made by
+ * PictureMetrics.Sample, and when no recording is running they are
+ * not enabled and cost almost nothing.  To record them:
+ * <pre>
+ *   java -XX:StartFlightRecording=filename=pictures.jfr ...
+ *   jfr print --events picturelab.* pictures.jfr
+ * </pre>
+ * Each kind of event extends PictureEvent.Base, which has the fields
+ * every picture operation records.
+ */
+public interface PictureEvent
+{
+  public void begin(); // start timing the event
+  public void end(); // stop timing the event
+  public boolean isEnabled(); // check if the event is being recorded
+  public boolean shouldCommit(); // check if the event should be written
+  public void commit(); // write the event to the recording
+
+  /**
+   * Method to set what the operation worked on
+   * @param operation the name of the operation
+   * @param width the width of the part of the picture worked on
+   * @param height the height of the part of the picture worked on
+   */
+  public void setPicture(String operation, int width, int height);
+
+  /**
+   * Method to set the file the operation read or wrote.  Only loads and
+   * writes have a file.
+   * @param fileName the name of the file
+   * @param bytes the size of the file
+   */
+  public default void setFile(String fileName, long bytes) {}
+
+  /**
+   * Method to make the right kind of event for an operation
+   * @param operation the name of the operation
+   * @return the event (not begun)
+   */
+  public static PictureEvent create(String operation)
+  {
+    if (operation.equals("load"))
+      return new Load();
+    else if (operation.equals("write"))
+      return new Write();
+    else
+      return new Filter();
+  }
+
+  /**
+   * Class for the fields that every picture event records
+   */
+  @Category("PictureLab")
+  @StackTrace(false)
+  public abstract static class Base extends Event implements PictureEvent
+  {
+    @Label("Operation")
+    @Description("The name of the operation")
+    String operation;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Pixels")
+    @Description("The number of pixels the operation worked on")
+    long pixels;
+
+    public void setPicture(String operation, int width, int height)
+    {
+      this.operation = operation;
+      this.width = width;
+      this.height = height;
+      this.pixels = (long) width * height;
+    }
+  }
+
+  /**
+   * Class for the fields of the events that read or write a file
+   */
+  public abstract static class FileBase extends Base
+  {
+    @Label("File Name")
+    String fileName;
+
+    @Label("File Size")
+    @DataAmount
+    long bytes;
+
+    public void setFile(String fileName, long bytes)
+    {
+      this.fileName = fileName;
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Class for the event made when a picture is loaded from a file
+   */
+  @Name("picturelab.Load")
+  @Label("Picture Load")
+  public static class Load extends FileBase
+  {
+  }
+
+  /**
+   * Class for the event made when a picture is written to a file
+   */
+  @Name("picturelab.Write")
+  @Label("Picture Write")
+  public static class Write extends FileBase
+  {
+  }
+
+  /**
+   * Class for the event made when a filter changes a picture
+   */
+  @Name("picturelab.Filter")
+  @Label("Picture Filter")
+  public static class Filter extends Base
+  {
+  }
+
+}
@@ -89,6 +89,9 @@ public class PictureExplorer implements MouseMotionListener, ActionListener, Mou
   /** The image display */
   private ImageDisplay imageDisplay;
   
+  /** the smaller copies of the picture used when zoomed out */
+  private MipmapPyramid pyramid;
+  
   /** the zoom factor (amount to zoom) */
   private double zoomFactor;
   
@@ -104,11 +107,46 @@ public class PictureExplorer implements MouseMotionListener, ActionListener, Mou
     // set the fields
     this.picture=picture;
     zoomFactor=1;
+    pyramid = new MipmapPyramid(picture);
     
     // create the window and set things up
     createWindow();
   }
   
+  /**
+   * Method to explore a different picture in this explorer, like the 
+   * full picture after a smaller preview of it.  If the new picture is
+   * a different size the zoom is scaled so it is shown at the same size
+   * as the old one, which keeps the scroll position and the current
+   * location on the same part of the picture.  This must be called on
+   * the event dispatch thread.
+   * @param picture the picture to explore now
+   */
+  public void setPicture(DigitalPicture picture)
+  {
+    int oldWidth = this.picture.getWidth();
+    int oldHeight = this.picture.getHeight();
+    this.picture = picture;
+    pyramid = new MipmapPyramid(picture);
+    pictureFrame.setTitle(picture.getTitle());
+    if (picture.getWidth() != oldWidth)
+    {
+      zoomFactor = zoomFactor * oldWidth / picture.getWidth();
+      colIndex = Math.min(picture.getWidth() - 1,
+                          (int) ((long) colIndex * picture.getWidth() / oldWidth));
+      rowIndex = Math.min(picture.getHeight() - 1,
+                          (int) ((long) rowIndex * picture.getHeight() / oldHeight));
+      
+      // the zoom isn't one on the menu anymore so any of them can be picked
+      enableZoomItems();
+    }
+    showZoomedImage();
+    imageDisplay.revalidate();
+    
+    // show the information for the current location in the new picture
+    displayPixelInformation(colIndex,rowIndex);
+  }
+  
   /**
    * Changes the number system to start at one
    */
@@ -188,8 +226,8 @@ public class PictureExplorer implements MouseMotionListener, ActionListener, Mou
   {
     scrollPane = new JScrollPane();
     
-    BufferedImage bimg = picture.getBufferedImage();
-    imageDisplay = new ImageDisplay(bimg);
+    Image image = picture.getImage();
+    imageDisplay = new ImageDisplay(image);
     imageDisplay.addMouseMotionListener(this);
     imageDisplay.addMouseListener(this);
     imageDisplay.setToolTipText("Click a mouse button on a pixel to see the pixel information");
@@ -471,8 +509,10 @@ public class PictureExplorer implements MouseMotionListener, ActionListener, Mou
   }
   
   /**
-   * Zooms in the on picture by scaling the image.  
-   * It is extremely memory intensive.
+   * Zooms in the on picture by scaling the image when it is drawn.
+   * When zooming out a smaller copy of the picture is drawn.  The 
+   * copies are made in the background the first time they are needed
+   * and the closest bigger one is drawn until then.
    * @param factor the amount to zoom by
    */
   public void zoom(double factor)
@@ -480,24 +520,42 @@ public class PictureExplorer implements MouseMotionListener, ActionListener, Mou
     // save the current zoom factor
     zoomFactor = factor;
     
-    // calculate the new width and height and get an image that size
-    int width = (int) (picture.getWidth()*zoomFactor);
-    int height = (int) (picture.getHeight()*zoomFactor);
-    BufferedImage bimg = picture.getBufferedImage();
-    
-    // set the scroll image icon to the new image
-    imageDisplay.setImage(bimg.getScaledInstance(width, height, Image.SCALE_DEFAULT));
-    imageDisplay.setCurrentX((int) (colIndex * zoomFactor));
-    imageDisplay.setCurrentY((int) (rowIndex * zoomFactor));
+    // show the best image ready now at the new size
+    showZoomedImage();
+    imageDisplay.setCurrentLocation((int) (colIndex * zoomFactor),
+                                    (int) (rowIndex * zoomFactor));
     imageDisplay.revalidate();
     checkScroll();  // check if need to reposition scroll
   }
   
   /**
-   * Repaints the image on the scrollpane.  
+   * Method to show the best image that is ready for the current zoom
+   * factor.  If a better one is being made this is called again on the
+   * event dispatch thread when it is ready.
+   */
+  private void showZoomedImage()
+  {
+    final double factor = zoomFactor;
+    int width = (int) (picture.getWidth()*factor);
+    int height = (int) (picture.getHeight()*factor);
+    Image image = pyramid.getImage(factor, () ->
+      SwingUtilities.invokeLater(() -> {
+        if (zoomFactor == factor)
+          showZoomedImage();
+      }));
+    imageDisplay.setImage(image, width, height);
+  }
+  
+  /**
+   * Repaints the image on the scrollpane.  The smaller copies used
+   * when zoomed out are made again since the picture may have changed.
    */
   public void repaint()
   {
+    pyramid.invalidate();
+    if (zoomFactor < 1)
+      showZoomedImage();
+    imageDisplay.updateImage();
     pictureFrame.repaint();
   }
   
@@ -586,8 +644,8 @@ public class PictureExplorer implements MouseMotionListener, ActionListener, Mou
     }
     
     // notify the image display of the current x and y
-    imageDisplay.setCurrentX((int) (colIndex * zoomFactor));
-    imageDisplay.setCurrentY((int) (rowIndex * zoomFactor));
+    imageDisplay.setCurrentLocation((int) (colIndex * zoomFactor),
+                                    (int) (rowIndex * zoomFactor));
   }
   
   /**
@@ -1,5 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 /**
  * Class that holds a digital picture and displays it using a JFrame
@@ -14,11 +15,12 @@ public class PictureFrame
   /** Main window used as the frame */
   JFrame frame = new JFrame();
   
-  /** ImageIcon used to display the picture in the label*/
-  ImageIcon imageIcon = new ImageIcon();
-  
-  /** Label used to display the picture */
-  private JLabel label = new JLabel(imageIcon);
+  /** 
+   * Display used to show the picture.  It has no current location so
+   * no + sign is drawn.
+   */
+  private ImageDisplay imageDisplay = 
+    new ImageDisplay(new BufferedImage(1,1,BufferedImage.TYPE_INT_RGB),-1,-1);
   
   /** Digital Picture to display */
   private DigitalPicture picture;
@@ -58,22 +60,38 @@ public class PictureFrame
   public void setPicture(Picture picture)
   {
     this.picture = picture;
-    imageIcon.setImage(picture.getImage());
+    imageDisplay.setImage(picture.getImage());
+    picture.takeDirtyRegions();
     frame.pack();
     frame.repaint();
   }
   
   /**
    * A method to update the picture frame image with the image  
-   * in the picture 
+   * in the picture.  If it is the same image as before only the parts
+   * of it that have changed are repainted.
    */
   public void updateImage()
   {
     // only do this if there is a picture
     if (picture != null)
     {
-      // set the image for the image icon from the picture
-      imageIcon.setImage(picture.getImage());
+      Image image = picture.getImage();
+      if (image != imageDisplay.getImage())
+      {
+        // show the new image
+        imageDisplay.setImage(image);
+        if (picture instanceof SimplePicture)
+          ((SimplePicture) picture).takeDirtyRegions();
+      }
+      else if (picture instanceof SimplePicture)
+      {
+        // repaint the parts that changed
+        for (Rectangle region : ((SimplePicture) picture).takeDirtyRegions())
+          imageDisplay.updateImage(region);
+      }
+      else
+        imageDisplay.updateImage();
       
       // set the title of the frame to the title of the picture
       frame.setTitle(picture.getTitle());
@@ -146,11 +164,9 @@ public class PictureFrame
     // make it visible
     frame.setVisible(true);
     
-    // update the image from the picture
+    // update the image from the picture (this repaints the parts
+    // of the picture that changed)
     updateImage();
-    
-    // tell the JFrame to handle the repaint
-    frame.repaint();
   }
   
   /**
@@ -162,8 +178,8 @@ public class PictureFrame
     // set the image for the picture frame
     updateImage();
       
-    // add the label to the frame
-    frame.getContentPane().add(label);
+    // add the display to the frame
+    frame.getContentPane().add(imageDisplay);
     
     // pack the frame (set the size to as big as it needs to be)
     frame.pack();
@@ -0,0 +1,171 @@
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+
+/**
+ * Class that loads pictures in the background.  The load methods
+ * return right away with a future that holds the picture when it has
+ * been decoded.  The explore and show methods open a window with a
+ * small preview of the picture as soon as it is decoded (only every
+ * nth pixel of the file is decoded so it is quick) and then swap in
+ * the full picture when it is ready.  No decoding is done on the Swing
+ * event dispatch thread.
+ */
+public class PictureLoader
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the largest width or height of a preview */
+  public static final int PREVIEW_SIZE = 512;
+
+  /** the threads that decode pictures */
+  private static final ExecutorService loaders =
+    Executors.newFixedThreadPool(2, task -> {
+      Thread thread = new Thread(task, "PictureLoader");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  /** runs code on the Swing event dispatch thread */
+  private static final Executor swing =
+    task -> SwingUtilities.invokeLater(task);
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to load a picture in the background
+   * @param fileName the name of the file to load
+   * @return a future that holds the picture, or the IOException if it
+   * couldn't be loaded
+   */
+  public static CompletableFuture<Picture> load(final String fileName)
+  {
+    return CompletableFuture.supplyAsync(() -> {
+      Picture picture = new Picture();
+      try {
+        picture.loadOrFail(fileName);
+        picture.setTitle(fileName);
+      } catch (IOException ex) {
+        throw new CompletionException(ex);
+      }
+      return picture;
+    }, loaders);
+  }
+
+  /**
+   * Method to load a smaller preview of a picture in the background.
+   * Only every nth pixel is decoded so that the preview is no bigger
+   * than maxSize in either direction.
+   * @param fileName the name of the file to load
+   * @param maxSize the largest width or height of the preview
+   * @return a future that holds the preview, or the IOException if it
+   * couldn't be loaded
+   */
+  public static CompletableFuture<Picture> loadPreview(final String fileName,
+                                                       final int maxSize)
+  {
+    return CompletableFuture.supplyAsync(() -> {
+      Picture picture = new Picture();
+      try {
+        Dimension size = SimplePicture.getImageSize(fileName);
+        int largest = Math.max(size.width, size.height);
+        int subsampling = Math.max(1, (largest + maxSize - 1) / maxSize);
+        picture.loadOrFail(fileName, null, subsampling);
+        picture.setTitle(fileName);
+      } catch (IOException ex) {
+        throw new CompletionException(ex);
+      }
+      return picture;
+    }, loaders);
+  }
+
+  /**
+   * Method to open a picture explorer on a picture without waiting for
+   * it to load.  A preview is explored first and the full picture
+   * replaces it when it is ready, zoomed out so it is shown at the
+   * same size as the preview.  In headless mode only the full
+   * picture is loaded and its explore method is called.
+   * @param fileName the name of the file to explore
+   * @return a future that holds the full picture when it is explored
+   */
+  public static CompletableFuture<Picture> explore(String fileName)
+  {
+    if (Headless.isHeadless())
+      return loadOrMessage(fileName).thenApply(picture -> {
+        picture.explore();
+        return picture;
+      });
+    final PictureExplorer[] explorer = new PictureExplorer[1];
+    final CompletableFuture<Picture> full = loadOrMessage(fileName);
+    loadPreview(fileName, PREVIEW_SIZE).thenAcceptAsync(preview -> {
+      if (explorer[0] == null && !full.isDone())
+      {
+        explorer[0] = new PictureExplorer(preview);
+        explorer[0].setTitle(fileName + " (loading)");
+      }
+    }, swing);
+    return full.thenApplyAsync(picture -> {
+      if (explorer[0] == null)
+        explorer[0] = new PictureExplorer(picture);
+      else
+        explorer[0].setPicture(picture);
+      return picture;
+    }, swing);
+  }
+
+  /**
+   * Method to show a picture in a picture frame without waiting for it
+   * to load.  A preview is shown first and the full picture replaces it
+   * when it is ready.  In headless mode only the full picture is loaded
+   * and its show method is called.
+   * @param fileName the name of the file to show
+   * @return a future that holds the full picture when it is shown
+   */
+  public static CompletableFuture<Picture> show(String fileName)
+  {
+    if (Headless.isHeadless())
+      return loadOrMessage(fileName).thenApply(picture -> {
+        picture.show();
+        return picture;
+      });
+    final PictureFrame[] frame = new PictureFrame[1];
+    final CompletableFuture<Picture> full = loadOrMessage(fileName);
+    loadPreview(fileName, PREVIEW_SIZE).thenAcceptAsync(preview -> {
+      if (frame[0] == null && !full.isDone())
+      {
+        frame[0] = new PictureFrame(preview);
+        frame[0].setTitle(fileName + " (loading)");
+      }
+    }, swing);
+    return full.thenApplyAsync(picture -> {
+      if (frame[0] == null)
+        frame[0] = new PictureFrame(picture);
+      else
+      {
+        frame[0].setPicture(picture);
+        frame[0].setTitle(picture.getTitle());
+      }
+      picture.setPictureFrame(frame[0]);
+      return picture;
+    }, swing);
+  }
+
+  /**
+   * Method to load a picture in the background like the Picture
+   * constructor does, so if it can't be loaded the picture has a
+   * message saying so
+   * @param fileName the name of the file to load
+   * @return a future that holds the picture
+   */
+  private static CompletableFuture<Picture> loadOrMessage(final String fileName)
+  {
+    return CompletableFuture.supplyAsync(() -> new Picture(fileName), loaders);
+  }
+
+}
@@ -0,0 +1,429 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * Class that records how the picture operations (loading, writing and
+ * each filter) are used: the number of calls, how long they took, how
+ * many pixels they worked on and how many bytes they allocated.  An
+ * operation is measured like this:
+ * <pre>
+ *   PictureMetrics.Sample sample = PictureMetrics.start("grayscale");
+ *   ... do the work ...
+ *   sample.stop(getWidth(), getHeight());
+ * </pre>
+ * The metrics can be seen with JMX (PictureLab:type=PictureMetrics), as
+ * a text table from getReport, or printed every so often with
+ * startDump.  Setting the picturelab.metrics.dump system property to a
+ * number of seconds starts printing to System.err right away.
+ *
+ * The times go into a histogram with a bucket for each power of 2
+ * microseconds, so the percentiles are within a factor of 2.  The
+ * allocated bytes only count the thread that called the operation,
+ * not the threads of a PixelProcessor it used.
+ */
+public class PictureMetrics implements PictureMetricsMXBean
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the number of buckets in each time histogram */
+  private static final int BUCKETS = 40;
+
+  /** the metrics for all the operations */
+  private static final PictureMetrics metrics = new PictureMetrics();
+
+  /** the sample used when metrics are off and nothing is recording */
+  private static final Sample NO_SAMPLE = new Sample(null, null, null);
+
+  /** the thread bean if it can count allocated bytes, else null */
+  private static final com.sun.management.ThreadMXBean allocations =
+    getAllocationBean();
+
+  /** true if metrics are being recorded */
+  private volatile boolean enabled =
+    !"false".equals(System.getProperty("picturelab.metrics"));
+
+  /** the metrics for each operation name */
+  private final Map<String,Operation> operations =
+    new ConcurrentHashMap<String,Operation>();
+
+  /** the thread that prints the metrics, made when first needed */
+  private ScheduledExecutorService dumper;
+
+  /** the current printing job (null if not printing) */
+  private ScheduledFuture<?> dump;
+
+  static
+  {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(
+        metrics, new ObjectName("PictureLab:type=PictureMetrics"));
+    } catch (Exception ex) {
+      System.out.println("Couldn't register the picture metrics: " + ex);
+    }
+    Long seconds = Long.getLong("picturelab.metrics.dump");
+    if (seconds != null && seconds > 0)
+      metrics.startDump(seconds, TimeUnit.SECONDS, System.err);
+  }
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * Constructor that is private so there is only one set of metrics
+   */
+  private PictureMetrics() {}
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to get the metrics for all the operations
+   * @return the metrics
+   */
+  public static PictureMetrics getMetrics() { return metrics; }
+
+  /**
+   * Method to start measuring an operation
+   * @param name the name of the operation, like "load" or "grayscale"
+   * @return the sample to stop when the operation is done
+   */
+  public static Sample start(String name)
+  {
+    PictureEvent event = PictureEvent.create(name);
+    if (!event.isEnabled())
+      event = null;
+    if (!metrics.enabled)
+      return (event == null) ? NO_SAMPLE : new Sample(name, null, event);
+    Operation operation = metrics.operations.get(name);
+    if (operation == null)
+      operation = metrics.operations.computeIfAbsent(name, Operation::new);
+    return new Sample(name, operation, event);
+  }
+
+  /**
+   * Method to get the thread bean if it can count the bytes a thread
+   * allocates
+   * @return the bean or null
+   */
+  private static com.sun.management.ThreadMXBean getAllocationBean()
+  {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean)
+    {
+      com.sun.management.ThreadMXBean sunBean =
+        (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported() &&
+          sunBean.isThreadAllocatedMemoryEnabled())
+        return sunBean;
+    }
+    return null;
+  }
+
+  /**
+   * Method to get the bytes the current thread has allocated so far
+   * @return the bytes (0 if they can't be counted)
+   */
+  private static long getAllocatedBytes()
+  {
+    if (allocations == null)
+      return 0;
+    return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public boolean isEnabled() { return enabled; }
+
+  public void setEnabled(boolean flag) { enabled = flag; }
+
+  /**
+   * Method to get the metrics for each operation
+   * @return the metrics sorted by operation name
+   */
+  public List<Snapshot> getOperations()
+  {
+    List<Snapshot> snapshots = new ArrayList<Snapshot>();
+    for (Operation operation : new TreeMap<String,Operation>(operations).values())
+      snapshots.add(new Snapshot(operation));
+    return snapshots;
+  }
+
+  /**
+   * Method to get the metrics for one operation
+   * @param name the name of the operation
+   * @return the metrics (null if it hasn't been called)
+   */
+  public Snapshot getOperation(String name)
+  {
+    Operation operation = operations.get(name);
+    return (operation == null) ? null : new Snapshot(operation);
+  }
+
+  /**
+   * Method to get the metrics as a text table with a row for each
+   * operation
+   * @return the table
+   */
+  public String getReport()
+  {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("%-24s %8s %10s %10s %10s %10s %10s %12s%n",
+                                "operation", "calls", "mean ms", "p50 ms",
+                                "p99 ms", "max ms", "Mpixels/s",
+                                "alloc MB"));
+    for (Snapshot snapshot : getOperations())
+      report.append(String.format("%-24s %8d %10.3f %10.3f %10.3f %10.3f %10.1f %12.1f%n",
+                                  snapshot.getName(), snapshot.getCount(),
+                                  snapshot.getMeanMillis(),
+                                  snapshot.getP50Millis(),
+                                  snapshot.getP99Millis(),
+                                  snapshot.getMaxMillis(),
+                                  snapshot.getMegapixelsPerSecond(),
+                                  snapshot.getAllocatedBytes() / 1e6));
+    return report.toString();
+  }
+
+  /**
+   * Method to clear all the metrics
+   */
+  public void reset()
+  {
+    operations.clear();
+  }
+
+  /**
+   * Method to print the report every so often on a background thread.
+   * Any printing that was already going on is stopped.
+   * @param period the time between reports
+   * @param unit the unit of the period
+   * @param out where to print the reports
+   */
+  public synchronized void startDump(long period, TimeUnit unit,
+                                     final PrintStream out)
+  {
+    stopDump();
+    if (dumper == null)
+      dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "PictureMetrics dump");
+        thread.setDaemon(true);
+        return thread;
+      });
+    dump = dumper.scheduleAtFixedRate(() -> out.print(getReport()),
+                                      period, period, unit);
+  }
+
+  /**
+   * Method to stop printing the report
+   */
+  public synchronized void stopDump()
+  {
+    if (dump != null)
+      dump.cancel(false);
+    dump = null;
+  }
+
+  //////////////////////// inner types ///////////////////////////////
+
+  /**
+   * Class for one measurement of an operation.  It is made by start and
+   * recorded by stop.  If a flight recording is running it also makes a
+   * PictureEvent for the operation.
+   */
+  public static class Sample
+  {
+    /** the name of the operation */
+    private final String name;
+    /** the operation (null if metrics are off) */
+    private final Operation operation;
+    /** the flight recorder event (null if it isn't enabled) */
+    private final PictureEvent event;
+    /** the time the operation started */
+    private final long startNanos;
+    /** the bytes the thread had allocated when the operation started */
+    private final long startBytes;
+
+    private Sample(String name, Operation operation, PictureEvent event)
+    {
+      this.name = name;
+      this.operation = operation;
+      this.event = event;
+      if (event != null)
+        event.begin();
+      if (operation == null)
+      {
+        startNanos = 0;
+        startBytes = 0;
+      }
+      else
+      {
+        startBytes = getAllocatedBytes();
+        startNanos = System.nanoTime();
+      }
+    }
+
+    /**
+     * Method to give the file the operation read or wrote
+     * @param fileName the name of the file
+     * @param bytes the size of the file
+     */
+    public void setFile(String fileName, long bytes)
+    {
+      if (event != null)
+        event.setFile(fileName, bytes);
+    }
+
+    /**
+     * Method to record the operation as done
+     * @param width the width of the part of the picture worked on
+     * @param height the height of the part of the picture worked on
+     */
+    public void stop(int width, int height)
+    {
+      long pixels = (long) width * height;
+      if (operation != null)
+      {
+        long nanos = System.nanoTime() - startNanos;
+        operation.record(nanos, pixels, getAllocatedBytes() - startBytes);
+      }
+      if (event != null)
+      {
+        event.end();
+        if (event.shouldCommit())
+        {
+          event.setPicture(name, width, height);
+          event.commit();
+        }
+      }
+    }
+  }
+
+  /**
+   * Class that adds up the metrics of one operation.  Many threads can
+   * record at once.
+   */
+  private static class Operation
+  {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder pixels = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    /** bucket i counts calls that took less than 2^i microseconds */
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    private Operation(String name)
+    {
+      this.name = name;
+    }
+
+    /**
+     * Method to record one call
+     * @param nanos the time the call took
+     * @param pixelCount the pixels it worked on
+     * @param bytes the bytes it allocated
+     */
+    private void record(long nanos, long pixelCount, long bytes)
+    {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+      pixels.add(pixelCount);
+      allocatedBytes.add(Math.max(0, bytes));
+      long micros = nanos / 1000;
+      int bucket = 64 - Long.numberOfLeadingZeros(micros);
+      histogram.incrementAndGet(Math.min(BUCKETS - 1, bucket));
+    }
+  }
+
+  /**
+   * Class for the metrics of an operation at one time.  JMX shows each
+   * one as a composite with an item for each get method.
+   */
+  public static class Snapshot
+  {
+    private final String name;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long pixels;
+    private final long allocatedBytes;
+    private final long[] histogram = new long[BUCKETS];
+
+    private Snapshot(Operation operation)
+    {
+      name = operation.name;
+      count = operation.count.sum();
+      totalNanos = operation.totalNanos.sum();
+      maxNanos = operation.maxNanos.get();
+      pixels = operation.pixels.sum();
+      allocatedBytes = operation.allocatedBytes.sum();
+      for (int i = 0; i < BUCKETS; i++)
+        histogram[i] = operation.histogram.get(i);
+    }
+
+    public String getName() { return name; }
+
+    public long getCount() { return count; }
+
+    public long getPixels() { return pixels; }
+
+    public long getAllocatedBytes() { return allocatedBytes; }
+
+    public double getTotalMillis() { return totalNanos / 1e6; }
+
+    public double getMeanMillis()
+    {
+      return (count == 0) ? 0 : totalNanos / 1e6 / count;
+    }
+
+    public double getMaxMillis() { return maxNanos / 1e6; }
+
+    public double getP50Millis() { return getPercentileMillis(50); }
+
+    public double getP90Millis() { return getPercentileMillis(90); }
+
+    public double getP99Millis() { return getPercentileMillis(99); }
+
+    /**
+     * Method to get the pixels worked on for each second spent
+     * @return the megapixels per second
+     */
+    public double getMegapixelsPerSecond()
+    {
+      return (totalNanos == 0) ? 0 : pixels * 1e3 / totalNanos;
+    }
+
+    /**
+     * Method to estimate a percentile of the time a call takes.  It is
+     * the top of the histogram bucket the percentile falls in, but never
+     * more than the longest call.
+     * @param percent the percentile (like 99)
+     * @return the time in milliseconds
+     */
+    public double getPercentileMillis(double percent)
+    {
+      long wanted = (long) Math.ceil(count * percent / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++)
+      {
+        seen += histogram[i];
+        if (seen >= wanted && seen > 0)
+          return Math.min((1L << i) / 1e3, getMaxMillis());
+      }
+      return getMaxMillis();
+    }
+  }
+
+}
@@ -0,0 +1,14 @@
+import java.util.List;
+
+/**
+ * Interface for looking at the picture metrics with JMX (for example in
+ * jconsole or VisualVM, under PictureLab:type=PictureMetrics)
+ */
+public interface PictureMetricsMXBean
+{
+  public boolean isEnabled(); // check if metrics are being recorded
+  public void setEnabled(boolean flag); // turn recording on or off
+  public List<PictureMetrics.Snapshot> getOperations(); // get the metrics for each operation
+  public String getReport(); // get the metrics as a text table
+  public void reset(); // clear all the metrics
+}
@@ -124,6 +124,27 @@ public class PictureTester
     swan.explore();
   }
   
+  /** Method to test edgeDetection with the Sobel mode */
+  public static void testEdgeDetection2()
+  {
+    Picture swan = new Picture("swan.jpg");
+    swan.edgeDetection(10, EdgeDetector.Mode.SOBEL);
+    swan.explore();
+  }
+  
+  /** Method to test a mapped picture (pixels kept in a file) */
+  public static void testMappedPicture()
+  {
+    try {
+      MappedPicture beach = MappedPicture.importImage("beach.jpg", 
+                                                      "beach.pixels");
+      new FilterChain(beach).grayscale().sepia().apply();
+      beach.explore();
+    } catch (java.io.IOException ex) {
+      System.out.println("There was an error trying to map beach.jpg");
+    }
+  }
+  
   /** Method to test fixUnderwater */
   public static void testFixUnderwater()
   {
@@ -148,8 +169,8 @@ public class PictureTester
   {
       Picture picture = new Picture("caterpillar.jpg");
       picture.explore();
-      picture.scaleByHalf();
-      picture.explore();
+      Picture half = picture.scaleByHalf();
+      half.explore();
   }
   
   
@@ -1,4 +1,5 @@
 import java.awt.Color;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Class that references a pixel in a picture. Pixel 
@@ -61,6 +62,18 @@ public class Pixel
    */
   public int getY() { return y; }
   
+  /**
+   * Method to move this pixel to a new location in the same picture.
+   * This lets one pixel object be reused to walk over a picture.
+   * @param x the new x location of the pixel in the picture
+   * @param y the new y location of the pixel in the picture
+   */
+  public void moveTo(int x, int y)
+  {
+    this.x = x;
+    this.y = y;
+  }
+  
   /** 
    * Method to get the row (y value)
    * @return the row (y value) of the pixel in the picture
@@ -92,6 +105,39 @@ public class Pixel
     
     return alpha;
   }
+  
+  /**
+   * Method to get the alpha value from a pixel represented as an int
+   * @param value the color value as an int
+   * @return the amount of alpha
+   */
+  public static int getAlpha(int value)
+  {
+    int alpha = (value >> 24) & 0xff;
+    return alpha;
+  }
+  
+  /**
+   * Method to get the value of this pixel as an int with alpha, red,
+   * green, and blue each taking 8 bits from left to right.  Use this
+   * with the static getRed, getGreen, and getBlue methods to get all
+   * the colors with only one read from the picture.
+   * @return the pixel value as an int
+   */
+  public int getValue()
+  {
+    return picture.getBasicPixel(x,y);
+  }
+  
+  /**
+   * Method to set the value of this pixel from an int with alpha, red,
+   * green, and blue each taking 8 bits from left to right
+   * @param value the new pixel value as an int
+   */
+  public void setValue(int value)
+  {
+    picture.setBasicPixel(x,y,value);
+  }
     
   
   /**
@@ -185,6 +231,18 @@ public class Pixel
     int blue = value & 0xff;
     return blue;
   }
+
+  /**
+   * Method to replace the red, green, and blue in a pixel represented
+   * as an int but keep its alpha.  This is what setColor does.
+   * @param value the pixel value as an int
+   * @param colorValue the value to take the red, green, and blue from
+   * @return the new pixel value as an int
+   */
+  public static int withColor(int value, int colorValue)
+  {
+    return (value & 0xff000000) | (colorValue & 0x00ffffff);
+  }
   
   /**
    * Method to get a color object that represents the color at this pixel.
@@ -243,6 +301,64 @@ public class Pixel
     picture.setBasicPixel(x,y,value);
   }
   
+  /**
+   * Method to make a pixel value as an int from alpha, red, green, and
+   * blue values.  Each value is corrected to be within 0 to 255 first.
+   * @param alpha the alpha (transparency) value
+   * @param red the red value
+   * @param green the green value
+   * @param blue the blue value
+   * @return the pixel value as an int
+   */
+  public static int makeValue(int alpha, int red, int green, int blue)
+  {
+    return (correctValue(alpha) << 24) | (correctValue(red) << 16) |
+      (correctValue(green) << 8) | correctValue(blue);
+  }
+  
+  /**
+   * Method to set the red, green, and blue values of this pixel at 
+   * once.  Each value is corrected to be within 0 to 255 and the 
+   * alpha is kept.  The picture is read once and written once.
+   * @param red the new red value
+   * @param green the new green value
+   * @param blue the new blue value
+   */
+  public void setColor(int red, int green, int blue)
+  {
+    int value = picture.getBasicPixel(x,y);
+    picture.setBasicPixel(x,y,makeValue(getAlpha(value),red,green,blue));
+  }
+  
+  /**
+   * Method to change the red, green, and blue values of this pixel by
+   * applying an operation to each of them.  The results are corrected
+   * to be within 0 to 255 and the alpha is kept.  The picture is read
+   * once and written once.
+   * @param redOperation the operation for the red value (or null to 
+   * keep the red value)
+   * @param greenOperation the operation for the green value (or null 
+   * to keep the green value)
+   * @param blueOperation the operation for the blue value (or null to 
+   * keep the blue value)
+   */
+  public void applyToChannels(IntUnaryOperator redOperation,
+                              IntUnaryOperator greenOperation,
+                              IntUnaryOperator blueOperation)
+  {
+    int value = picture.getBasicPixel(x,y);
+    int red = getRed(value);
+    int green = getGreen(value);
+    int blue = getBlue(value);
+    if (redOperation != null)
+      red = redOperation.applyAsInt(red);
+    if (greenOperation != null)
+      green = greenOperation.applyAsInt(green);
+    if (blueOperation != null)
+      blue = blueOperation.applyAsInt(blue);
+    picture.setBasicPixel(x,y,makeValue(getAlpha(value),red,green,blue));
+  }
+  
   /**
    * Method to correct a color value to be within 0 to 255
    * @param the value to use
@@ -266,8 +382,9 @@ public class Pixel
     // set the red value to the corrected value
     int red = correctValue(value);
     
-    // update the pixel value in the picture
-    updatePicture(getAlpha(), red, getGreen(), getBlue());
+    // replace the red in the pixel value in the picture
+    int oldValue = picture.getBasicPixel(x,y);
+    picture.setBasicPixel(x,y,(oldValue & 0xff00ffff) | (red << 16));
   } 
   
   /**
@@ -279,8 +396,9 @@ public class Pixel
     // set the green value to the corrected value
     int green = correctValue(value);
     
-    // update the pixel value in the picture
-    updatePicture(getAlpha(), getRed(), green, getBlue());
+    // replace the green in the pixel value in the picture
+    int oldValue = picture.getBasicPixel(x,y);
+    picture.setBasicPixel(x,y,(oldValue & 0xffff00ff) | (green << 8));
   } 
   
   /**
@@ -292,8 +410,9 @@ public class Pixel
     // set the blue value to the corrected value
     int blue = correctValue(value);
     
-    // update the pixel value in the picture
-    updatePicture(getAlpha(), getRed(), getGreen(), blue);
+    // replace the blue in the pixel value in the picture
+    int oldValue = picture.getBasicPixel(x,y);
+    picture.setBasicPixel(x,y,(oldValue & 0xffffff00) | blue);
   } 
   
    /**
@@ -305,8 +424,9 @@ public class Pixel
     // make sure that the alpha is from 0 to 255 
     int alpha = correctValue(value);
     
-    // update the associated picture
-    updatePicture(alpha, getRed(), getGreen(), getBlue());
+    // replace the alpha in the pixel value in the picture
+    int oldValue = picture.getBasicPixel(x,y);
+    picture.setBasicPixel(x,y,(oldValue & 0x00ffffff) | (alpha << 24));
   } 
   
   /**
@@ -316,9 +436,10 @@ public class Pixel
   */
  public double colorDistance(Color testColor)
  {
-   double redDistance = this.getRed() - testColor.getRed();
-   double greenDistance = this.getGreen() - testColor.getGreen();
-   double blueDistance = this.getBlue() - testColor.getBlue();
+   int value = picture.getBasicPixel(x,y);
+   double redDistance = getRed(value) - testColor.getRed();
+   double greenDistance = getGreen(value) - testColor.getGreen();
+   double blueDistance = getBlue(value) - testColor.getBlue();
    double distance = Math.sqrt(redDistance * redDistance + 
                                greenDistance * greenDistance +
                                blueDistance * blueDistance);
@@ -348,7 +469,8 @@ public class Pixel
   */
  public double getAverage()
  {
-   double average = (getRed() + getGreen() + getBlue()) / 3.0;
+   int value = picture.getBasicPixel(x,y);
+   double average = (getRed(value) + getGreen(value) + getBlue(value)) / 3.0;
    return average;
  }
   
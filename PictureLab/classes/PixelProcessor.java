@@ -0,0 +1,268 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that runs work on the pixels of a picture in bands of rows.
+ * Big pictures are split into bands that run in parallel on a 
+ * ForkJoinPool and small pictures are done on the calling thread.
+ * Each band is independent so the result is the same as doing the
+ * rows one after the other from top to bottom.
+ */
+public class PixelProcessor
+{
+  
+  ////////////////////////// fields ///////////////////////////////////
+  
+  /** the default number of pixels below which work isn't split up */
+  public static final int DEFAULT_THRESHOLD = 1 << 16;
+  
+  /** the most pixels a thread keeps in its band buffer between bands */
+  private static final int MAX_POOLED_BUFFER = 1 << 20;
+  
+  /** a buffer for each thread to hold the pixels of a band */
+  private static final ThreadLocal<int[]> bandBuffer = new ThreadLocal<int[]>();
+  
+  /** the processor used by the Picture methods */
+  private static PixelProcessor defaultProcessor = new PixelProcessor();
+  
+  /** the pool to run the bands on */
+  private ForkJoinPool pool;
+  
+  /** the number of pixels below which a band isn't split up */
+  private int threshold;
+  
+  ////////////////////// constructors /////////////////////////////////
+  
+  /**
+   * A constructor that takes no arguments.  It uses the common 
+   * ForkJoinPool and the default threshold.
+   */
+  public PixelProcessor()
+  {
+    this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+  
+  /**
+   * A constructor that takes the pool to use and the threshold
+   * @param pool the pool to run the bands on
+   * @param threshold the number of pixels below which the work is done
+   * on one thread (use Integer.MAX_VALUE to always work sequentially)
+   */
+  public PixelProcessor(ForkJoinPool pool, int threshold)
+  {
+    if (threshold < 1)
+      throw new IllegalArgumentException("threshold must be at least 1");
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+  
+  ///////////////////////// methods //////////////////////////////
+  
+  /**
+   * Method to get the processor used by the Picture methods
+   * @return the default processor
+   */
+  public static PixelProcessor getDefault() { return defaultProcessor; }
+  
+  /**
+   * Method to set the processor used by the Picture methods
+   * @param processor the processor to use
+   */
+  public static void setDefault(PixelProcessor processor)
+  {
+    defaultProcessor = processor;
+  }
+  
+  /**
+   * Method to get the pool the bands run on
+   * @return the fork join pool
+   */
+  public ForkJoinPool getPool() { return pool; }
+  
+  /**
+   * Method to get the number of pixels below which the work isn't 
+   * split up
+   * @return the threshold in pixels
+   */
+  public int getThreshold() { return threshold; }
+  
+  /**
+   * Method to apply a point operation to every pixel in a picture
+   * @param picture the picture to change
+   * @param operation the operation to apply
+   */
+  public void apply(DigitalPicture picture, PointOperation operation)
+  {
+    apply(picture, Collections.singletonList(operation));
+  }
+  
+  /**
+   * Method to apply a list of point operations to every pixel in a 
+   * picture in one pass.  Each band of rows is read once, all of the
+   * operations are applied to it in order, and it is written back once.
+   * @param picture the picture to change
+   * @param operations the operations to apply in order
+   */
+  public void apply(final DigitalPicture picture, 
+                    List<PointOperation> operations)
+  {
+    final int width = picture.getWidth();
+    final PointOperation[] steps = 
+      operations.toArray(new PointOperation[operations.size()]);
+    if (steps.length == 0)
+      return;
+    
+    forEachBand(width, picture.getHeight(), (startRow, endRow) -> {
+      int size = (endRow - startRow) * width;
+      int[] values = getBandBuffer(size);
+      picture.getBasicPixels(0,startRow,width,endRow - startRow,
+                             values,0,width);
+      for (PointOperation step : steps)
+        step.applyToArray(values,0,size);
+      picture.setBasicPixels(0,startRow,width,endRow - startRow,
+                             values,0,width);
+    });
+  }
+  
+  /**
+   * Method to run an action over all the rows of an area.  The rows
+   * are split into bands of about threshold pixels each and the bands
+   * are run in parallel, so the action must only change the rows it 
+   * is given.
+   * @param width the width of the area in pixels
+   * @param height the height of the area in pixels
+   * @param action the action to run on each band of rows
+   */
+  public void forEachBand(int width, int height, BandAction action)
+  {
+    if (height <= 0)
+      return;
+    
+    // find how many rows make a band of about threshold pixels
+    int rowsPerBand = Math.max(1, threshold / Math.max(1, width));
+    if (height <= rowsPerBand || pool.getParallelism() <= 1)
+      forEachBandInOrder(width,height,Math.min(threshold,DEFAULT_THRESHOLD),
+                         action);
+    else
+      pool.invoke(new BandTask(action,0,height,rowsPerBand));
+  }
+  
+  /**
+   * Method to run an action over all the rows of an area on the calling
+   * thread, one band of about DEFAULT_THRESHOLD pixels at a time from top
+   * to bottom.  Doing the rows in bands keeps the band buffers small even
+   * for a huge picture.
+   * @param width the width of the area in pixels
+   * @param height the height of the area in pixels
+   * @param action the action to run on each band of rows
+   */
+  public static void forEachBandInOrder(int width, int height, 
+                                        BandAction action)
+  {
+    forEachBandInOrder(width,height,DEFAULT_THRESHOLD,action);
+  }
+  
+  /**
+   * Method to run an action over all the rows of an area on the calling
+   * thread in bands of about the given number of pixels
+   * @param width the width of the area in pixels
+   * @param height the height of the area in pixels
+   * @param bandPixels the number of pixels in a band
+   * @param action the action to run on each band of rows
+   */
+  private static void forEachBandInOrder(int width, int height, 
+                                         int bandPixels, BandAction action)
+  {
+    int rowsPerBand = Math.max(1, bandPixels / Math.max(1, width));
+    for (int startRow = 0; startRow < height; startRow += rowsPerBand)
+      action.process(startRow,Math.min(height,startRow + rowsPerBand));
+  }
+  
+  /**
+   * Method to get a buffer for the current thread that holds at least
+   * the given number of pixels.  The buffer is reused by later bands
+   * on the same thread unless it is very big, so a thread never keeps
+   * more than a few megabytes.
+   * @param size the number of pixels needed
+   * @return the buffer
+   */
+  static int[] getBandBuffer(int size)
+  {
+    int[] buffer = bandBuffer.get();
+    if (buffer == null || buffer.length < size)
+    {
+      buffer = new int[size];
+      if (size <= MAX_POOLED_BUFFER)
+        bandBuffer.set(buffer);
+    }
+    return buffer;
+  }
+  
+  //////////////////////// inner types ///////////////////////////////
+  
+  /**
+   * Interface for work done on a band of rows
+   */
+  public interface BandAction
+  {
+    /**
+     * Method to do the work for a band of rows
+     * @param startRow the first row in the band
+     * @param endRow the row just after the last row in the band
+     */
+    public void process(int startRow, int endRow);
+  }
+  
+  /**
+   * Class for a task that splits its rows in half until they are
+   * small enough and then runs the band action on them
+   */
+  private static class BandTask extends RecursiveAction
+  {
+    /** the version of the serialized form */
+    private static final long serialVersionUID = 1L;
+    
+    /** the action to run */
+    private BandAction action;
+    /** the first row */
+    private int startRow;
+    /** the row after the last row */
+    private int endRow;
+    /** the number of rows to stop splitting at */
+    private int rowsPerBand;
+    
+    /**
+     * Constructor that takes the action, the rows, and the band size
+     * @param action the action to run
+     * @param startRow the first row
+     * @param endRow the row after the last row
+     * @param rowsPerBand the number of rows to stop splitting at
+     */
+    public BandTask(BandAction action, int startRow, int endRow,
+                    int rowsPerBand)
+    {
+      this.action = action;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.rowsPerBand = rowsPerBand;
+    }
+    
+    /**
+     * Method to split the rows or run the action on them
+     */
+    protected void compute()
+    {
+      if (endRow - startRow <= rowsPerBand)
+        action.process(startRow,endRow);
+      else
+      {
+        int middleRow = (startRow + endRow) >>> 1;
+        invokeAll(new BandTask(action,startRow,middleRow,rowsPerBand),
+                  new BandTask(action,middleRow,endRow,rowsPerBand));
+      }
+    }
+  }
+  
+}
@@ -0,0 +1,12 @@
+/**
+ * Interface to describe something that visits the pixels of a 
+ * digital picture one at a time.  The same Pixel object is passed 
+ * to every call with its location moved to the next pixel so no 
+ * objects are created while walking the picture.  Don't keep a 
+ * reference to the pixel after visit returns since it will have 
+ * moved on.
+ */
+public interface PixelVisitor
+{
+  public void visit(Pixel pixel); // visit the pixel at its current location
+}
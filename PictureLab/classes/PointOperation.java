@@ -0,0 +1,27 @@
+/**
+ * Interface to describe a point operation on a picture.  A point 
+ * operation works out the new value of a pixel using only the old
+ * value of that same pixel, so the pixels can be changed in any 
+ * order (or at the same time on different threads) and the result
+ * is always the same.  Pixel values are ints with alpha, red, green,
+ * and blue each taking 8 bits from left to right.
+ */
+public interface PointOperation
+{
+  public int apply(int value); // get the new pixel value from the old one
+  
+  /**
+   * Method to apply the operation to part of an array of pixel values.
+   * Operations that can do this with a simple loop on the packed ints
+   * should override it so that the JIT compiler can turn the loop into
+   * vector (SIMD) instructions.
+   * @param values the pixel values to change
+   * @param start the index of the first value to change
+   * @param end the index just after the last value to change
+   */
+  default void applyToArray(int[] values, int start, int end)
+  {
+    for (int i = start; i < end; i++)
+      values[i] = apply(values[i]);
+  }
+}
@@ -0,0 +1,320 @@
+/**
+ * Class with the point operations used by the Picture filters.  The
+ * operations that only keep or flip bits and grayscale work right on
+ * the packed pixel values with simple loops that the JIT compiler can
+ * turn into vector (SIMD) instructions.  If the VectorKernels class
+ * from the vector directory has been compiled and the program is run
+ * with --add-modules jdk.incubator.vector, those operations use it
+ * instead of the loops.  The operations that test one color and scale
+ * others are compiled into lookup tables the first time they are
+ * asked for and the same table is used after that.
+ */
+public class PointOperations
+{
+  
+  ////////////////////////// fields ///////////////////////////////////
+  
+  /** the operation that sets the blue to 0 */
+  private static final PointOperation ZERO_BLUE = 
+    new BitOperation(0xffffff00, 0);
+  
+  /** the operation that sets the red and green to 0 */
+  private static final PointOperation KEEP_ONLY_BLUE = 
+    new BitOperation(0xff0000ff, 0);
+  
+  /** the operation that flips the red, green, and blue */
+  private static final PointOperation NEGATE = 
+    new BitOperation(0xffffffff, 0x00ffffff);
+  
+  /** the grayscale operation */
+  private static final PointOperation GRAYSCALE = new GrayscaleOperation();
+  
+  /** the name of the class with the Vector API kernels */
+  private static final String VECTOR_KERNELS_CLASS = "VectorKernels";
+  
+  /** the Vector API kernels (null if they can't be used) */
+  private static final Kernels VECTOR_KERNELS = loadVectorKernels();
+  
+  /** the compiled sepia operation (null until it is first used) */
+  private static LookupTable sepiaTable;
+  
+  /** the compiled moreRed operation (null until it is first used) */
+  private static LookupTable moreRedTable;
+  
+  /** the compiled fixUnderwater operation (null until it is first used) */
+  private static LookupTable fixUnderwaterTable;
+  
+  ///////////////////////// methods //////////////////////////////
+  
+  /**
+   * Method to get the operation that sets the blue to 0
+   * @return the zero blue operation
+   */
+  public static PointOperation zeroBlue()
+  {
+    return ZERO_BLUE;
+  }
+  
+  /**
+   * Method to get the operation that sets the red and green to 0
+   * @return the keep only blue operation
+   */
+  public static PointOperation keepOnlyBlue()
+  {
+    return KEEP_ONLY_BLUE;
+  }
+  
+  /**
+   * Method to get the operation that changes each color value to 
+   * 255 minus the value
+   * @return the negate operation
+   */
+  public static PointOperation negate()
+  {
+    return NEGATE;
+  }
+  
+  /**
+   * Method to get the operation that sets each color value to the 
+   * average of the red, green, and blue
+   * @return the grayscale operation
+   */
+  public static PointOperation grayscale()
+  {
+    return GRAYSCALE;
+  }
+  
+  /**
+   * Method to check if the bit and grayscale operations use the Vector
+   * API kernels instead of the loops
+   * @return true if the Vector API kernels are used
+   */
+  public static boolean isUsingVectorKernels()
+  {
+    return VECTOR_KERNELS != null;
+  }
+  
+  /**
+   * Method to load the Vector API kernels.  The class isn't there
+   * unless it was compiled from the vector directory, and it can't be
+   * loaded unless the jdk.incubator.vector module was added.
+   * @return the kernels or null if they can't be used
+   */
+  private static Kernels loadVectorKernels()
+  {
+    try {
+      return (Kernels) Class.forName(VECTOR_KERNELS_CLASS)
+        .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError |
+             ClassCastException ex) {
+      return null;
+    }
+  }
+  
+  /**
+   * Method to get the operation that makes fish easier to see
+   * @return the fix underwater operation (a table keyed on green)
+   */
+  public static synchronized PointOperation fixUnderwater()
+  {
+    if (fixUnderwaterTable == null)
+      fixUnderwaterTable = LookupTable.keyed(LookupTable.GREEN, value -> {
+        int blue = Pixel.getBlue(value);
+        if (blue > Pixel.getGreen(value))
+          blue = blue + 20;
+        else
+          blue = blue - 20;
+        return Pixel.makeValue(Pixel.getAlpha(value), 
+            Pixel.getRed(value), Pixel.getGreen(value), blue);
+      });
+    return fixUnderwaterTable;
+  }
+  
+  /**
+   * Method to get the sepia operation
+   * @return the sepia operation (a table keyed on red)
+   */
+  public static synchronized PointOperation sepia()
+  {
+    if (sepiaTable == null)
+      sepiaTable = LookupTable.keyed(LookupTable.RED, value -> {
+        int red = Pixel.getRed(value);
+        int green = Pixel.getGreen(value);
+        int blue = Pixel.getBlue(value);
+        if (red < 60)
+        {
+          red = (int) (red * .9);
+          blue = (int) (blue * .9);
+          green = (int) (green * .9);
+        }
+        else if (red < 190)
+        {
+          blue = (int) (blue * .8);
+        }
+        else
+        {
+          blue = (int) (blue * .9);
+        }
+        return Pixel.makeValue(Pixel.getAlpha(value), red, green, blue);
+      });
+    return sepiaTable;
+  }
+  
+  /**
+   * Method to get the operation that makes a picture more red
+   * @return the more red operation (a table keyed on blue)
+   */
+  public static synchronized PointOperation moreRed()
+  {
+    if (moreRedTable == null)
+      moreRedTable = LookupTable.keyed(LookupTable.BLUE, value -> {
+        int red = Pixel.getRed(value);
+        int green = Pixel.getGreen(value);
+        int blue = Pixel.getBlue(value);
+        if (blue < 100)
+        {
+          red = (int) (red * 1.1);
+          blue = (int) (blue * .9);
+          green = (int) (green * 1.05);
+        }
+        else if (blue < 200)
+        {
+          blue = (int) (blue * .8);
+          green = (int) (green * .9);
+        }
+        else
+        {
+          red = (int) (red * 1.1);
+        }
+        return Pixel.makeValue(Pixel.getAlpha(value), red, green, blue);
+      });
+    return moreRedTable;
+  }
+  
+  //////////////////////// inner classes ///////////////////////////////
+  
+  /**
+   * Interface for the array loops of the bit and grayscale operations,
+   * so they can be done by a class that uses the Vector API
+   */
+  public interface Kernels
+  {
+    /**
+     * Method to and each value with a mask and then xor it with another
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     * @param andMask the bits to keep
+     * @param xorMask the bits to flip
+     */
+    public void andXor(int[] values, int start, int end, int andMask,
+                       int xorMask);
+    
+    /**
+     * Method to set the red, green, and blue of each value to their
+     * average ((total * 21846) >>> 16), keeping the alpha
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     */
+    public void grayscale(int[] values, int start, int end);
+  }
+  
+  /**
+   * Class for operations that and the pixel value with a mask and then
+   * xor it with another mask
+   */
+  private static final class BitOperation implements PointOperation
+  {
+    /** the bits to keep */
+    private final int andMask;
+    /** the bits to flip */
+    private final int xorMask;
+    
+    /**
+     * Constructor that takes the masks
+     * @param andMask the bits to keep
+     * @param xorMask the bits to flip
+     */
+    private BitOperation(int andMask, int xorMask)
+    {
+      this.andMask = andMask;
+      this.xorMask = xorMask;
+    }
+    
+    /**
+     * Method to get the new pixel value
+     * @param value the old pixel value
+     * @return the new pixel value
+     */
+    public int apply(int value)
+    {
+      return (value & andMask) ^ xorMask;
+    }
+    
+    /**
+     * Method to change part of an array of pixel values
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     */
+    public void applyToArray(int[] values, int start, int end)
+    {
+      if (VECTOR_KERNELS != null)
+      {
+        VECTOR_KERNELS.andXor(values, start, end, andMask, xorMask);
+        return;
+      }
+      int andMask = this.andMask;
+      int xorMask = this.xorMask;
+      for (int i = start; i < end; i++)
+        values[i] = (values[i] & andMask) ^ xorMask;
+    }
+  }
+  
+  /**
+   * Class for the grayscale operation.  Dividing the total by 3 is done
+   * as multiplying by 21846 and shifting right 16, which gives the same
+   * answer for every total from 0 to 765 and unlike division can be 
+   * done with vector instructions.
+   */
+  private static final class GrayscaleOperation implements PointOperation
+  {
+    /**
+     * Method to get the new pixel value
+     * @param value the old pixel value
+     * @return the new pixel value
+     */
+    public int apply(int value)
+    {
+      int total = ((value >> 16) & 0xff) + ((value >> 8) & 0xff) + 
+        (value & 0xff);
+      int avg = (total * 21846) >>> 16;
+      return (value & 0xff000000) | (avg << 16) | (avg << 8) | avg;
+    }
+    
+    /**
+     * Method to change part of an array of pixel values
+     * @param values the pixel values to change
+     * @param start the index of the first value to change
+     * @param end the index just after the last value to change
+     */
+    public void applyToArray(int[] values, int start, int end)
+    {
+      if (VECTOR_KERNELS != null)
+      {
+        VECTOR_KERNELS.grayscale(values, start, end);
+        return;
+      }
+      for (int i = start; i < end; i++)
+      {
+        int value = values[i];
+        int total = ((value >> 16) & 0xff) + ((value >> 8) & 0xff) + 
+          (value & 0xff);
+        int avg = (total * 21846) >>> 16;
+        values[i] = (value & 0xff000000) | (avg << 16) | (avg << 8) | avg;
+      }
+    }
+  }
+  
+}
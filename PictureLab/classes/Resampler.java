@@ -0,0 +1,376 @@
+/**
+ * Class that resizes pictures.  Each destination pixel is a weighted
+ * average of the source pixels around it where the weights come from
+ * a filter.  The filter is applied across the rows and then down the
+ * columns (it is separable) and the weights for each destination
+ * column and row are worked out once before any pixels are done.
+ * Between the two passes each color is kept on its own with extra bits
+ * after the binary point and isn't clamped, so only the final colors
+ * are rounded and the overshoot of the sharper filters isn't cut off
+ * halfway.
+ * When a picture is made smaller the filter is stretched so that
+ * every source pixel counts, which keeps thin lines from vanishing
+ * and stops jagged edges.
+ *
+ * Big pictures are done in bands of destination rows in parallel.
+ */
+public class Resampler
+{
+
+  ////////////////////////// fields ///////////////////////////////////
+
+  /** the number of bits after the binary point in the weights */
+  private static final int WEIGHT_BITS = 14;
+
+  /** a weight of 1 */
+  private static final int ONE = 1 << WEIGHT_BITS;
+
+  /** the number of bits after the binary point in the colors between passes */
+  private static final int MIDDLE_BITS = 6;
+
+  /** the filters that can be used to resize */
+  public enum Filter
+  {
+    /** average the source pixels under each destination pixel */
+    BOX(0.5)
+    {
+      double weight(double x)
+      {
+        return (x >= -0.5 && x < 0.5) ? 1 : 0;
+      }
+    },
+    /** straight line (triangle) between the two nearest pixels */
+    BILINEAR(1)
+    {
+      double weight(double x)
+      {
+        x = Math.abs(x);
+        return (x < 1) ? 1 - x : 0;
+      }
+    },
+    /** cubic curve through the four nearest pixels (Keys, a = -0.5) */
+    BICUBIC(2)
+    {
+      double weight(double x)
+      {
+        double a = -0.5;
+        x = Math.abs(x);
+        if (x < 1)
+          return ((a + 2) * x - (a + 3)) * x * x + 1;
+        if (x < 2)
+          return (((x - 5) * x + 8) * x - 4) * a;
+        return 0;
+      }
+    },
+    /** windowed sinc over the six nearest pixels, the sharpest filter */
+    LANCZOS(3)
+    {
+      double weight(double x)
+      {
+        if (x == 0)
+          return 1;
+        if (x <= -3 || x >= 3)
+          return 0;
+        double px = Math.PI * x;
+        return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+      }
+    };
+
+    /** how far the filter reaches from its center in pixels */
+    private final double support;
+
+    private Filter(double support)
+    {
+      this.support = support;
+    }
+
+    /**
+     * Method to get the weight for a pixel at a distance from the center
+     * @param x the distance in pixels
+     * @return the weight
+     */
+    abstract double weight(double x);
+  }
+
+  /** the filter to use */
+  private Filter filter;
+
+  /** the processor that runs the bands (null to use the calling thread) */
+  private PixelProcessor processor;
+
+  ////////////////////// constructors /////////////////////////////////
+
+  /**
+   * A constructor that takes the filter to use.  Big pictures are done
+   * in parallel on the default pixel processor.
+   * @param filter the filter to use
+   */
+  public Resampler(Filter filter)
+  {
+    this(filter, PixelProcessor.getDefault());
+  }
+
+  /**
+   * A constructor that takes the filter and the processor to use
+   * @param filter the filter to use
+   * @param processor the processor to run the bands on (null to do all
+   * the work on the calling thread)
+   */
+  public Resampler(Filter filter, PixelProcessor processor)
+  {
+    this.filter = filter;
+    this.processor = processor;
+  }
+
+  ///////////////////////// methods //////////////////////////////
+
+  /**
+   * Method to get the filter
+   * @return the filter used to resize
+   */
+  public Filter getFilter() { return filter; }
+
+  /**
+   * Method to make a new picture that is a resized copy of a picture
+   * @param source the picture to resize
+   * @param width the width of the new picture
+   * @param height the height of the new picture
+   * @return the new picture
+   */
+  public Picture resize(DigitalPicture source, int width, int height)
+  {
+    Picture result = new Picture(height, width);
+    resize(source, result);
+    return result;
+  }
+
+  /**
+   * Method to resize all of the source picture to fill all of the
+   * destination picture
+   * @param source the picture to resize
+   * @param dest the picture to write the result to (it can't be the
+   * source)
+   */
+  public void resize(final DigitalPicture source, final DigitalPicture dest)
+  {
+    if (source == dest)
+      throw new IllegalArgumentException("can't resize a picture into itself");
+    final int sourceWidth = source.getWidth();
+    final int sourceHeight = source.getHeight();
+    final int destWidth = dest.getWidth();
+    final int destHeight = dest.getHeight();
+    if (destWidth == 0 || destHeight == 0)
+      return;
+    final Weights columns = new Weights(sourceWidth, destWidth, filter);
+    final Weights rows = new Weights(sourceHeight, destHeight, filter);
+
+    PixelProcessor.BandAction action = (startRow, endRow) -> {
+      // find the source rows this band of destination rows needs
+      int firstRow = rows.start[startRow];
+      int lastRow = firstRow;
+      for (int y = startRow; y < endRow; y++)
+      {
+        firstRow = Math.min(firstRow, rows.start[y]);
+        lastRow = Math.max(lastRow, rows.start[y] + rows.count[y]);
+      }
+      int sourceSize = (lastRow - firstRow) * sourceWidth;
+      int middleSize = (lastRow - firstRow) * destWidth * 4;
+      int destSize = (endRow - startRow) * destWidth;
+      int[] values =
+        PixelProcessor.getBandBuffer(sourceSize + middleSize + destSize);
+
+      // resize across the rows, then down the columns
+      source.getBasicPixels(0,firstRow,sourceWidth,lastRow - firstRow,
+                            values,0,sourceWidth);
+      for (int y = 0; y < lastRow - firstRow; y++)
+        for (int x = 0; x < destWidth; x++)
+          combineAcross(values,y * sourceWidth + columns.start[x],columns,x,
+                        values,sourceSize + (y * destWidth + x) * 4);
+      for (int y = startRow; y < endRow; y++)
+      {
+        int middleStart =
+          sourceSize + (rows.start[y] - firstRow) * destWidth * 4;
+        int destStart = sourceSize + middleSize + (y - startRow) * destWidth;
+        for (int x = 0; x < destWidth; x++)
+          values[destStart + x] =
+            combineDown(values,middleStart + x * 4,destWidth * 4,rows,y);
+      }
+      dest.setBasicPixels(0,startRow,destWidth,endRow - startRow,
+                          values,sourceSize + middleSize,destWidth);
+    };
+    // size the bands by the source rows they read, which is many more
+    // than the destination rows when shrinking a lot
+    int bandWidth = (int) Math.min(Integer.MAX_VALUE, (long) destWidth *
+                                   Math.max(1, sourceHeight / destHeight) *
+                                   Math.max(1, sourceWidth / destWidth));
+    if (processor == null)
+      PixelProcessor.forEachBandInOrder(bandWidth,destHeight,action);
+    else
+      processor.forEachBand(bandWidth,destHeight,action);
+  }
+
+  /**
+   * Method to work out one pixel of the first pass as the weighted sum
+   * of source pixels in a row.  Each color is kept with MIDDLE_BITS
+   * bits after the binary point and isn't clamped.
+   * @param values the array with the source pixels
+   * @param offset the index of the first source pixel to use
+   * @param weights the weight table for the columns
+   * @param index the destination column
+   * @param result the array to put the alpha, red, green and blue in
+   * @param resultOffset the index in the result to put the alpha at
+   */
+  private static void combineAcross(int[] values, int offset,
+                                    Weights weights, int index,
+                                    int[] result, int resultOffset)
+  {
+    int count = weights.count[index];
+    int base = index * weights.stride;
+    int shift = WEIGHT_BITS - MIDDLE_BITS;
+
+    // start at a half so the shift rounds
+    int alpha = 1 << (shift - 1), red = alpha, green = alpha, blue = alpha;
+    for (int i = 0; i < count; i++)
+    {
+      int value = values[offset + i];
+      int weight = weights.weights[base + i];
+      alpha += (value >>> 24) * weight;
+      red += ((value >> 16) & 0xff) * weight;
+      green += ((value >> 8) & 0xff) * weight;
+      blue += (value & 0xff) * weight;
+    }
+    result[resultOffset] = alpha >> shift;
+    result[resultOffset + 1] = red >> shift;
+    result[resultOffset + 2] = green >> shift;
+    result[resultOffset + 3] = blue >> shift;
+  }
+
+  /**
+   * Method to work out one pixel as the weighted sum of first pass
+   * pixels in a column.  Each channel is rounded and clamped to 0 to 255.
+   * @param values the array with the first pass colors (4 for each pixel)
+   * @param offset the index of the alpha of the first pixel to use
+   * @param step the distance between the pixels
+   * @param weights the weight table for the rows
+   * @param index the destination row
+   * @return the destination pixel value (alpha, red, green, blue)
+   */
+  private static int combineDown(int[] values, int offset, int step,
+                                 Weights weights, int index)
+  {
+    int count = weights.count[index];
+    int base = index * weights.stride;
+
+    // start at a half so the shift rounds
+    int alpha = 1 << (WEIGHT_BITS + MIDDLE_BITS - 1);
+    int red = alpha, green = alpha, blue = alpha;
+    for (int i = 0; i < count; i++)
+    {
+      int at = offset + i * step;
+      int weight = weights.weights[base + i];
+      alpha += values[at] * weight;
+      red += values[at + 1] * weight;
+      green += values[at + 2] * weight;
+      blue += values[at + 3] * weight;
+    }
+    return (clamp(alpha) << 24) | (clamp(red) << 16) |
+      (clamp(green) << 8) | clamp(blue);
+  }
+
+  /**
+   * Method to turn a weighted sum into a channel value from 0 to 255
+   * @param sum the weighted sum
+   * @return the channel value
+   */
+  private static int clamp(int sum)
+  {
+    sum >>= WEIGHT_BITS + MIDDLE_BITS;
+    return (sum < 0) ? 0 : (sum > 255) ? 255 : sum;
+  }
+
+  //////////////////////// inner types ///////////////////////////////
+
+  /**
+   * Class that holds the source pixels and their weights for each
+   * destination column (or row).  The weights are fixed point numbers
+   * that add up to exactly 1 for each destination pixel.
+   */
+  private static class Weights
+  {
+    /** the first source pixel for each destination pixel */
+    private int[] start;
+    /** the number of source pixels for each destination pixel */
+    private int[] count;
+    /** the weights with stride entries for each destination pixel */
+    private int[] weights;
+    /** the most source pixels any destination pixel can use */
+    private int stride;
+
+    /**
+     * Constructor that works out the weights
+     * @param sourceSize the number of source pixels
+     * @param destSize the number of destination pixels
+     * @param filter the filter to get the weights from
+     */
+    private Weights(int sourceSize, int destSize, Filter filter)
+    {
+      double scale = (double) sourceSize / destSize;
+
+      // stretch the filter when making the picture smaller
+      double filterScale = Math.max(scale, 1.0);
+      double support = filter.support * filterScale;
+      stride = (int) Math.ceil(support) * 2 + 1;
+      start = new int[destSize];
+      count = new int[destSize];
+      weights = new int[destSize * stride];
+      double[] real = new double[stride];
+
+      for (int i = 0; i < destSize; i++)
+      {
+        double center = (i + 0.5) * scale;
+        int first = Math.max(0, (int) Math.floor(center - support + 0.5));
+        int last = Math.min(sourceSize, (int) Math.floor(center + support + 0.5));
+
+        // find the weights and leave off the zero ones at the ends
+        double total = 0;
+        int n = 0;
+        for (int j = first; j < last; j++)
+        {
+          double weight = filter.weight((j + 0.5 - center) / filterScale);
+          if (n == 0 && weight == 0)
+          {
+            first++;
+            continue;
+          }
+          real[n++] = weight;
+          total += weight;
+        }
+        while (n > 1 && real[n - 1] == 0)
+          n--;
+        if (n == 0 || total == 0)
+        {
+          // use the nearest pixel
+          first = Math.min(sourceSize - 1, (int) center);
+          real[0] = total = 1;
+          n = 1;
+        }
+
+        // turn them into fixed point numbers that add up to exactly 1
+        int sum = 0;
+        int biggest = 0;
+        int base = i * stride;
+        for (int k = 0; k < n; k++)
+        {
+          weights[base + k] = (int) Math.round(real[k] / total * ONE);
+          sum += weights[base + k];
+          if (weights[base + k] > weights[base + biggest])
+            biggest = k;
+        }
+        weights[base + biggest] += ONE - sum;
+        start[i] = first;
+        count[i] = n;
+      }
+    }
+  }
+
+}
@@ -1,8 +1,18 @@
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import javax.swing.ImageIcon;
 import java.awt.*;
 import java.io.*;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
 import java.awt.geom.*;
 
 /**
@@ -34,6 +44,38 @@ public class SimplePicture implements DigitalPicture
    */
   private BufferedImage bufferedImage;
   
+  /**
+   * the pixels of the buffered image as packed ints in row-major 
+   * order (null if the buffered image isn't backed by an int array)
+   */
+  private int[] pixels;
+  
+  /**
+   * the alpha bits to add to a pixel value when it is read (all 1's 
+   * for images without alpha so that pixels read as opaque)
+   */
+  private int alphaMask;
+  
+  /**
+   * the count of pictures sharing the buffered image with this one
+   * (null if this picture is the only one using it).  Copies share 
+   * the pixels until one of them changes them.
+   */
+  private volatile SharedImage sharedImage;
+  
+  /**
+   * the parts of the picture that have changed since a display 
+   * last asked for them
+   */
+  private DirtyRegion dirtyRegion;
+  
+  /**
+   * true if the buffered image or a graphics object for it has been
+   * handed out, so it can be drawn on at any time without marking
+   * the dirty region
+   */
+  private volatile boolean imageHandedOut;
+  
   /**
    * frame used to display the simple picture
    */
@@ -45,6 +87,17 @@ public class SimplePicture implements DigitalPicture
   private String extension;
   
  
+ /**
+  * The count of pictures that share one buffered image.  The 
+  * count is changed and the image copied while holding its lock
+  * (and the lock of the picture doing it).
+  */
+ private static class SharedImage
+ {
+   /** the number of pictures using the buffered image */
+   private int owners = 1;
+ }
+ 
  /////////////////////// Constructors /////////////////////////
  
  /**
@@ -72,6 +125,34 @@ public class SimplePicture implements DigitalPicture
    
  }
  
+ /**
+  * A Constructor that takes a file name and only decodes part of the
+  * file and/or every nth pixel to create a smaller picture
+  * @param fileName the file name to use in creating the picture
+  * @param region the part of the file to decode (null for all of it)
+  * @param subsampling keep every subsampling pixel in x and y (1 keeps
+  * them all, 2 makes a half size picture, etc)
+  */
+ public SimplePicture(String fileName, Rectangle region, int subsampling)
+ {
+   // load the part of the picture into the buffered image
+   load(fileName, region, subsampling);
+ }
+ 
+ /**
+  * A Constructor that reads a picture file without putting it in the
+  * image cache.  This is for code that reads each file only once (like
+  * a batch of pictures) where the cache would only copy the pixels and
+  * push out pictures that are used again.  Unlike the other constructors
+  * it throws an exception if the file can't be read.
+  * @param file the file to read
+  * @throws IOException if the file can't be read as a picture
+  */
+ public SimplePicture(File file) throws IOException
+ {
+   readFile(file.getPath(), null, 1, false);
+ }
+ 
  /**
   * A constructor that takes the width and height desired for a picture and
   * creates a buffered image of that size.  This constructor doesn't 
@@ -81,7 +162,7 @@ public class SimplePicture implements DigitalPicture
   */
  public  SimplePicture(int width, int height)
  {
-   bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+   setBufferedImage(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
    title = "None";
    fileName = "None";
    extension = "jpg";
@@ -103,7 +184,9 @@ public class SimplePicture implements DigitalPicture
  }
  
  /**
-  * A Constructor that takes a picture to copy information from
+  * A Constructor that takes a picture to copy information from.  The
+  * copy shares the pixels with the picture it was copied from until 
+  * either of them is changed so making a copy is fast.
   * @param copyPicture the picture to copy from
   */
  public SimplePicture(SimplePicture copyPicture)
@@ -115,10 +198,15 @@ public class SimplePicture implements DigitalPicture
    }
    if (copyPicture.title != null)
       this.title = new String(copyPicture.title);
-   if (copyPicture.bufferedImage != null)
+   // copies are always opaque so only pictures without alpha are shared,
+   // and not if the image was handed out since it can change at any time
+   if (copyPicture.pixels != null && copyPicture.alphaMask != 0 &&
+       !copyPicture.imageHandedOut)
+     copyPicture.shareWith(this);
+   else if (copyPicture.bufferedImage != null)
    {
-     this.bufferedImage = new BufferedImage(copyPicture.getWidth(),
-                                            copyPicture.getHeight(), BufferedImage.TYPE_INT_RGB);
+     setBufferedImage(new BufferedImage(copyPicture.getWidth(),
+                                        copyPicture.getHeight(), BufferedImage.TYPE_INT_RGB));
      this.copyPicture(copyPicture);
    }
  }
@@ -129,7 +217,7 @@ public class SimplePicture implements DigitalPicture
   */
  public SimplePicture(BufferedImage image)
  {
-   this.bufferedImage = image;
+   setBufferedImage(image);
    title = "None";
    fileName = "None";
    extension = "jpg";
@@ -151,27 +239,8 @@ public class SimplePicture implements DigitalPicture
   */
  public void copyPicture(SimplePicture sourcePicture)
  {
-   Pixel sourcePixel = null;
-   Pixel targetPixel = null;
-   
-   // loop through the columns
-   for (int sourceX = 0, targetX = 0; 
-        sourceX < sourcePicture.getWidth() &&
-        targetX < this.getWidth();
-        sourceX++, targetX++)
-   {
-     // loop through the rows
-     for (int sourceY = 0, targetY = 0; 
-          sourceY < sourcePicture.getHeight() && 
-          targetY < this.getHeight();
-          sourceY++, targetY++)
-     {
-       sourcePixel = sourcePicture.getPixel(sourceX,sourceY);
-       targetPixel = this.getPixel(targetX,targetY);
-       targetPixel.setColor(sourcePixel.getColor());
-     }
-   }
-   
+   // copy the colors but keep the alpha
+   new Blitter().copy(sourcePicture,this,0,0);
  }
  
  /**
@@ -180,32 +249,59 @@ public class SimplePicture implements DigitalPicture
   */
  public void setAllPixelsToAColor(Color color)
  {
-   // loop through all x
-   for (int x = 0; x < this.getWidth(); x++)
+   int[] row = new int[this.getWidth()];
+   int rgb = color.getRGB();
+   
+   // loop through all rows keeping the alpha of each pixel
+   for (int y = 0; y < this.getHeight(); y++)
    {
-     // loop through all y
-     for (int y = 0; y < this.getHeight(); y++)
-     {
-       getPixel(x,y).setColor(color);
-     }
+     getBasicPixelRow(y,row);
+     for (int x = 0; x < row.length; x++)
+       row[x] = Pixel.withColor(row[x],rgb);
+     setBasicPixelRow(y,row);
    }
  }
  
  /**
-  * Method to get the buffered image
+  * Method to get the buffered image.  The buffered image can be 
+  * changed so this picture stops sharing it with any copies.
   * @return the buffered image 
   */
  public BufferedImage getBufferedImage() 
  {
+    imageHandedOut = true;
+    unshare();
     return bufferedImage;
  }
  
+ /**
+  * Method to get the parts of the picture that have changed since the
+  * last time this method was called.  Changed pixels are tracked in 
+  * tiles and joined into rectangles so a display only needs to repaint
+  * those rectangles.  Once the buffered image or a graphics object 
+  * has been handed out it can be drawn on at any time, so from then
+  * on the whole picture is always returned.
+  * @return the rectangles that have changed
+  */
+ public List<Rectangle> takeDirtyRegions()
+ {
+   List<Rectangle> regions = dirtyRegion.takeRegions();
+   if (imageHandedOut)
+   {
+     regions.clear();
+     regions.add(new Rectangle(0,0,getWidth(),getHeight()));
+   }
+   return regions;
+ }
+ 
  /**
   * Method to get a graphics object for this picture to use to draw on
   * @return a graphics object to use for drawing
   */
  public Graphics getGraphics()
  {
+   imageHandedOut = true;
+   unshare();
    return bufferedImage.getGraphics();
  }
  
@@ -215,6 +311,20 @@ public class SimplePicture implements DigitalPicture
   */
  public Graphics2D createGraphics()
  {
+   imageHandedOut = true;
+   unshare();
+   return bufferedImage.createGraphics();
+ }
+ 
+ /**
+  * Method to get a Graphics2D object to draw on the picture from 
+  * inside this class.  The caller must call markAll on the dirty
+  * region when it is done drawing.
+  * @return a graphics object to use for drawing
+  */
+ private Graphics2D createOwnGraphics()
+ {
+   unshare();
    return bufferedImage.createGraphics();
  }
  
@@ -281,7 +391,9 @@ public class SimplePicture implements DigitalPicture
  }
  
  /**
-  * Method to get an image from the picture
+  * Method to get an image from the picture.  The image may be shared
+  * with copies of this picture so it should only be used to display
+  * or read the picture (use getBufferedImage to change it).
   * @return  the buffered image since it is an image
   */
  public Image getImage()
@@ -297,7 +409,9 @@ public class SimplePicture implements DigitalPicture
   */
  public int getBasicPixel(int x, int y)
  {
-    return bufferedImage.getRGB(x,y);
+   if (pixels == null)
+     return bufferedImage.getRGB(x,y);
+   return pixels[getIndex(x,y)] | alphaMask;
  }
     
  /** 
@@ -308,7 +422,351 @@ public class SimplePicture implements DigitalPicture
   */     
  public void setBasicPixel(int x, int y, int rgb)
  {
-   bufferedImage.setRGB(x,y,rgb);
+   if (pixels == null)
+     bufferedImage.setRGB(x,y,rgb);
+   else
+   {
+     unshare();
+     pixels[getIndex(x,y)] = rgb & ~alphaMask;
+   }
+   dirtyRegion.mark(x,y);
+ }
+ 
+ /**
+  * Method to change the value of a pixel in the picture by applying
+  * an operation to it.  The pixel is read once and written once.
+  * @param x the x coordinate of the pixel
+  * @param y the y coordinate of the pixel
+  * @param operation the operation that takes the current pixel value
+  * (alpha, red, green, blue) and returns the new one
+  */
+ public void updateBasicPixel(int x, int y, IntUnaryOperator operation)
+ {
+   if (pixels == null)
+   {
+     bufferedImage.setRGB(x,y,operation.applyAsInt(bufferedImage.getRGB(x,y)));
+     dirtyRegion.mark(x,y);
+     return;
+   }
+   unshare();
+   int index = getIndex(x,y);
+   pixels[index] = operation.applyAsInt(pixels[index] | alphaMask) & ~alphaMask;
+   dirtyRegion.mark(x,y);
+ }
+ 
+ /**
+  * Method to get the pixel values for a rectangular region of the 
+  * picture as ints.  The values are stored in row-major order with
+  * scansize values between the start of one row and the next.
+  * @param x the x coordinate of the top left of the region
+  * @param y the y coordinate of the top left of the region
+  * @param width the width of the region
+  * @param height the height of the region
+  * @param values the array to put the values in (if null a new 
+  * array is created)
+  * @param offset the index in the array of the first value
+  * @param scansize the distance in the array between rows
+  * @return the array of pixel values (alpha, red, green, blue)
+  */
+ public int[] getBasicPixels(int x, int y, int width, int height,
+                             int[] values, int offset, int scansize)
+ {
+   if (values == null)
+     values = new int[offset + height * scansize];
+   if (pixels == null)
+     return bufferedImage.getRGB(x,y,width,height,values,offset,scansize);
+   
+   checkRegion(x,y,width,height);
+   int pictureWidth = getWidth();
+   for (int row = 0; row < height; row++)
+   {
+     int start = offset + row * scansize;
+     System.arraycopy(pixels,(y + row) * pictureWidth + x,
+                      values,start,width);
+     
+     // images without alpha have to read as opaque
+     if (alphaMask != 0)
+       for (int i = start; i < start + width; i++)
+         values[i] |= alphaMask;
+   }
+   return values;
+ }
+ 
+ /**
+  * Method to set the pixel values for a rectangular region of the
+  * picture from ints.  The values are read in row-major order with
+  * scansize values between the start of one row and the next.
+  * @param x the x coordinate of the top left of the region
+  * @param y the y coordinate of the top left of the region
+  * @param width the width of the region
+  * @param height the height of the region
+  * @param values the new pixel values (alpha, red, green, blue)
+  * @param offset the index in the array of the first value
+  * @param scansize the distance in the array between rows
+  */
+ public void setBasicPixels(int x, int y, int width, int height,
+                            int[] values, int offset, int scansize)
+ {
+   if (pixels == null)
+   {
+     bufferedImage.setRGB(x,y,width,height,values,offset,scansize);
+     dirtyRegion.mark(x,y,width,height);
+     return;
+   }
+   
+   checkRegion(x,y,width,height);
+   unshare();
+   dirtyRegion.mark(x,y,width,height);
+   int pictureWidth = getWidth();
+   for (int row = 0; row < height; row++)
+   {
+     int start = (y + row) * pictureWidth + x;
+     System.arraycopy(values,offset + row * scansize,pixels,start,width);
+     
+     // images without alpha don't store it
+     if (alphaMask != 0)
+       for (int i = start; i < start + width; i++)
+         pixels[i] &= ~alphaMask;
+   }
+ }
+ 
+ /**
+  * Method to get the pixel values for one row of the picture
+  * @param y the row to get
+  * @param values the array to put the values in (if null a new 
+  * array is created)
+  * @return the array of pixel values from x=0 to x=width-1
+  */
+ public int[] getBasicPixelRow(int y, int[] values)
+ {
+   int width = getWidth();
+   return getBasicPixels(0,y,width,1,values,0,width);
+ }
+ 
+ /**
+  * Method to set the pixel values for one row of the picture
+  * @param y the row to set
+  * @param values the new pixel values from x=0 to x=width-1
+  */
+ public void setBasicPixelRow(int y, int[] values)
+ {
+   int width = getWidth();
+   setBasicPixels(0,y,width,1,values,0,width);
+ }
+ 
+ /**
+  * Method to copy a region of pixels from another picture straight
+  * from its int array to this one.  This only works when both pictures
+  * keep their pixels in int arrays and don't have alpha.  The rows are
+  * copied from top to bottom (a row can overlap itself).
+  * @param source the picture to copy from
+  * @param sourceX the x of the left of the region in the source
+  * @param sourceY the y of the top of the region in the source
+  * @param width the width of the region
+  * @param height the height of the region
+  * @param destX the x of the left of the region in this picture
+  * @param destY the y of the top of the region in this picture
+  * @return true if the pixels were copied, false if they have to be
+  * copied some other way
+  */
+ boolean copyPixels(SimplePicture source, int sourceX, int sourceY,
+                    int width, int height, int destX, int destY)
+ {
+   if (pixels == null || alphaMask == 0 || 
+       source.pixels == null || source.alphaMask == 0)
+     return false;
+   source.checkRegion(sourceX,sourceY,width,height);
+   checkRegion(destX,destY,width,height);
+   unshare();
+   
+   // get the source array after unsharing in case it is this picture
+   dirtyRegion.mark(destX,destY,width,height);
+   int[] sourcePixels = source.pixels;
+   int sourceWidth = source.getWidth();
+   int destWidth = getWidth();
+   for (int row = 0; row < height; row++)
+     System.arraycopy(sourcePixels,(sourceY + row) * sourceWidth + sourceX,
+                      pixels,(destY + row) * destWidth + destX,width);
+   return true;
+ }
+ 
+ /**
+  * Method to get the index in the pixel array of a location
+  * @param x the x coordinate of the pixel
+  * @param y the y coordinate of the pixel
+  * @return the index of the pixel in the pixel array
+  */
+ private int getIndex(int x, int y)
+ {
+   int width = bufferedImage.getWidth();
+   if (x < 0 || x >= width || y < 0 || y >= bufferedImage.getHeight())
+     throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+   return y * width + x;
+ }
+ 
+ /**
+  * Method to check that a region is inside the picture
+  * @param x the x coordinate of the top left of the region
+  * @param y the y coordinate of the top left of the region
+  * @param width the width of the region
+  * @param height the height of the region
+  */
+ private void checkRegion(int x, int y, int width, int height)
+ {
+   if (x < 0 || y < 0 || width < 0 || height < 0 ||
+       x + width > getWidth() || y + height > getHeight())
+     throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+ }
+ 
+ /**
+  * Method to let a new copy of this picture share its pixels.  Only
+  * opaque pictures that keep their pixels in an int array are shared.
+  * @param copy the new copy
+  */
+ private synchronized void shareWith(SimplePicture copy)
+ {
+   SharedImage shared = sharedImage;
+   if (shared == null)
+   {
+     shared = new SharedImage();
+     sharedImage = shared;
+   }
+   synchronized (shared)
+   {
+     shared.owners++;
+   }
+   copy.bufferedImage = bufferedImage;
+   copy.pixels = pixels;
+   copy.alphaMask = alphaMask;
+   copy.dirtyRegion = new DirtyRegion(getWidth(),getHeight());
+   copy.dirtyRegion.markAll();
+   copy.sharedImage = shared;
+ }
+ 
+ /**
+  * Method to make sure this picture has its own pixels before they
+  * are changed.  If other pictures still share the buffered image 
+  * it is copied, otherwise this picture is the last one using it 
+  * and just keeps it.
+  */
+ private void unshare()
+ {
+   if (sharedImage != null)
+     copySharedImage();
+ }
+ 
+ /**
+  * Method to copy the buffered image if other pictures still share it
+  * and stop sharing it
+  */
+ private synchronized void copySharedImage()
+ {
+   SharedImage shared = sharedImage;
+   if (shared == null)
+     return;
+   synchronized (shared)
+   {
+     // the copy is made while holding the lock so the last owner
+     // can't change the pixels until the copy is done
+     if (shared.owners > 1)
+     {
+       BufferedImage image = new BufferedImage(bufferedImage.getWidth(),
+                                               bufferedImage.getHeight(),
+                                               bufferedImage.getType());
+       int[] copy = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+       System.arraycopy(pixels,0,copy,0,copy.length);
+       bufferedImage = image;
+       pixels = copy;
+     }
+     shared.owners--;
+     sharedImage = null;
+   }
+ }
+ 
+ /**
+  * Method to stop sharing the buffered image without copying it
+  */
+ private synchronized void releaseSharedImage()
+ {
+   SharedImage shared = sharedImage;
+   if (shared == null)
+     return;
+   synchronized (shared)
+   {
+     shared.owners--;
+     sharedImage = null;
+   }
+ }
+ 
+ /**
+  * Method to set the buffered image and find the int array that
+  * holds its pixels.  Only images that store one pixel per int 
+  * (TYPE_INT_RGB and TYPE_INT_ARGB) can be used directly, other 
+  * images are read and written through the buffered image.
+  * @param image the new buffered image
+  */
+ private void setBufferedImage(BufferedImage image)
+ {
+   // stop sharing the old buffered image
+   releaseSharedImage();
+   
+   bufferedImage = image;
+   pixels = null;
+   alphaMask = 0;
+   dirtyRegion = new DirtyRegion(image.getWidth(),image.getHeight());
+   dirtyRegion.markAll();
+   imageHandedOut = false;
+   
+   int type = image.getType();
+   if (type != BufferedImage.TYPE_INT_RGB &&
+       type != BufferedImage.TYPE_INT_ARGB)
+     return;
+   
+   // the raster must start at the beginning of the array with no padding
+   WritableRaster raster = image.getRaster();
+   if (!(raster.getDataBuffer() instanceof DataBufferInt) ||
+       !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel))
+     return;
+   DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+   SinglePixelPackedSampleModel sampleModel = 
+     (SinglePixelPackedSampleModel) raster.getSampleModel();
+   if (dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0 ||
+       raster.getSampleModelTranslateX() != 0 ||
+       raster.getSampleModelTranslateY() != 0 ||
+       sampleModel.getScanlineStride() != image.getWidth())
+     return;
+   
+   pixels = dataBuffer.getData();
+   if (type == BufferedImage.TYPE_INT_RGB)
+     alphaMask = 0xff000000;
+ }
+ 
+ /**
+  * Method to convert an image to one that stores one pixel per int 
+  * so that its pixels can be used directly
+  * @param image the image to convert
+  * @return the image if it already stores one pixel per int else a
+  * converted copy of it
+  */
+ private static BufferedImage toIntImage(BufferedImage image)
+ {
+   int type = image.getType();
+   if (type == BufferedImage.TYPE_INT_RGB || 
+       type == BufferedImage.TYPE_INT_ARGB)
+     return image;
+   
+   // keep the alpha if the image has it
+   if (image.getColorModel().hasAlpha())
+     type = BufferedImage.TYPE_INT_ARGB;
+   else
+     type = BufferedImage.TYPE_INT_RGB;
+   BufferedImage result = new BufferedImage(image.getWidth(),
+                                            image.getHeight(),type);
+   Graphics2D graphics2d = result.createGraphics();
+   graphics2d.setComposite(AlphaComposite.Src);
+   graphics2d.drawImage(image,0,0,null);
+   graphics2d.dispose();
+   return result;
  }
   
  /**
@@ -361,6 +819,29 @@ public class SimplePicture implements DigitalPicture
    return pixelArray;
  }
  
+ /**
+  * Method to visit all the pixels in this simple picture in row-major
+  * order (y=0 to y=height-1 and x=0 to x=width-1).  Only one Pixel 
+  * object is created and it is moved to each location in turn.
+  * @param visitor the visitor to call for each pixel
+  */
+ public void forEachPixel(PixelVisitor visitor)
+ {
+   int width = getWidth();
+   int height = getHeight();
+   Pixel pixel = new Pixel(this,0,0);
+   
+   // loop through height rows from top to bottom
+   for (int row = 0; row < height; row++)
+   {
+     for (int col = 0; col < width; col++)
+     {
+       pixel.moveTo(col,row);
+       visitor.visit(pixel);
+     }
+   }
+ }
+ 
  /**
   * Method to load the buffered image with the passed image
   * @param image  the image to use
@@ -368,20 +849,29 @@ public class SimplePicture implements DigitalPicture
  public void load(Image image)
  {
    // get a graphics context to use to draw on the buffered image
-   Graphics2D graphics2d = bufferedImage.createGraphics();
+   Graphics2D graphics2d = createOwnGraphics();
    
    // draw the image on the buffered image starting at 0,0
    graphics2d.drawImage(image,0,0,null);
+   graphics2d.dispose();
+   dirtyRegion.markAll();
    
    // show the new image
    show();
  }
  
  /**
-  * Method to show the picture in a picture frame
+  * Method to show the picture in a picture frame.  In headless mode
+  * a snapshot is written instead (see Headless).
   */
  public void show()
  {
+   if (Headless.isHeadless())
+   {
+     Headless.snapshot(this,"show");
+     return;
+   }
+   
     // if there is a current picture frame then use it 
    if (pictureFrame != null)
      pictureFrame.updateImageAndShowIt();
@@ -414,10 +904,16 @@ public class SimplePicture implements DigitalPicture
 
  /**
   * Method to open a picture explorer on a copy (in memory) of this 
-  * simple picture
+  * simple picture.  In headless mode a snapshot is written instead.
   */
  public void explore()
  {
+   if (Headless.isHeadless())
+   {
+     Headless.snapshot(this,"explore");
+     return;
+   }
+   
    // create a copy of the current picture and explore it
    new PictureExplorer(new SimplePicture(this));
  }
@@ -425,10 +921,17 @@ public class SimplePicture implements DigitalPicture
  /**
   * Method to force the picture to repaint itself.  This is very
   * useful after you have changed the pixels in a picture and
-  * you want to see the change.
+  * you want to see the change.  In headless mode a snapshot is 
+  * written instead.
   */
  public void repaint()
  {
+   if (Headless.isHeadless())
+   {
+     Headless.snapshot(this,"repaint");
+     return;
+   }
+   
    // if there is a picture frame tell it to repaint
    if (pictureFrame != null)
      pictureFrame.repaint();
@@ -445,32 +948,187 @@ public class SimplePicture implements DigitalPicture
   */
  public void loadOrFail(String fileName) throws IOException
  {
+   loadOrFail(fileName, null, 1);
+ }
+ 
+ /**
+  * Method to load part of the picture from the passed file name.  Only
+  * the pixels that are needed are decoded which is much faster and 
+  * uses much less memory than loading the whole picture and then 
+  * cropping or scaling it.
+  * @param fileName the file name to use to load the picture from
+  * @param region the part of the file to decode (null for all of it).
+  * The part outside of the picture in the file is ignored.
+  * @param subsampling keep every subsampling pixel in x and y (1 keeps
+  * them all, 2 makes a half size picture, etc)
+  * @throws IOException if the picture isn't found or the region is 
+  * outside the picture
+  */
+ public void loadOrFail(String fileName, Rectangle region, int subsampling)
+   throws IOException
+ {
+   readFile(fileName, region, subsampling, true);
+ }
+ 
+ /**
+  * Method to read part of the picture from a file
+  * @param fileName the file name to use to load the picture from
+  * @param region the part of the file to decode (null for all of it)
+  * @param subsampling keep every subsampling pixel in x and y
+  * @param cached true to use the image cache for whole pictures
+  * @throws IOException if the picture isn't found or the region is 
+  * outside the picture
+  */
+ private void readFile(String fileName, Rectangle region, int subsampling,
+                       boolean cached) throws IOException
+ {
+   if (subsampling < 1)
+     throw new IllegalArgumentException("subsampling must be at least 1");
+   
     // set the current picture's file name
    this.fileName = fileName;
    
    // set the extension
-   int posDot = fileName.indexOf('.');
-   if (posDot >= 0)
-     this.extension = fileName.substring(posDot + 1);
+   String fileExtension = getExtension(fileName);
+   if (fileExtension != null)
+     this.extension = fileExtension;
    
    // if the current title is null use the file name
    if (title == null)
      title = fileName;
    
-   File file = new File(this.fileName);
+   PictureMetrics.Sample sample = PictureMetrics.start("load");
+   File file = getReadableFile(this.fileName);
+   
+   // only whole pictures are cached
+   if (cached && region == null && subsampling == 1)
+   {
+     ImageCache cache = ImageCache.getDefault();
+     BufferedImage image = cache.get(file);
+     if (image == null)
+     {
+       image = toIntImage(readImage(file, null, 1));
+       cache.put(file, image);
+     }
+     setBufferedImage(image);
+   }
+   else
+     setBufferedImage(toIntImage(readImage(file, region, subsampling)));
+   sample.setFile(file.getPath(), file.length());
+   sample.stop(getWidth(), getHeight());
+ }
+ 
+ /**
+  * Method to find a file to read from the passed file name.  If 
+  * the file name can't be read as it is the media path is tried.
+  * @param fileName the file name
+  * @return the file to read
+  * @throws IOException if the file can't be read
+  */
+ static File getReadableFile(String fileName) throws IOException
+ {
+   File file = new File(fileName);
 
    if (!file.canRead()) 
    {
      // try adding the media path 
-     file = new File(FileChooser.getMediaPath(this.fileName));
+     file = new File(MediaPath.getMediaPath(fileName));
      if (!file.canRead())
      {
-       throw new IOException(this.fileName +
+       throw new IOException(fileName +
                              " could not be opened. Check that you specified the path");
      }
    }
-   
-   bufferedImage = ImageIO.read(file);
+   return file;
+ }
+ 
+ /**
+  * Method to get the width and height of the picture in a file without
+  * decoding its pixels (only the header of the file is read)
+  * @param fileName the name of the file (the media path is tried if 
+  * it can't be read as it is)
+  * @return the width and height of the picture
+  * @throws IOException if the file can't be read as a picture
+  */
+ public static Dimension getImageSize(String fileName) throws IOException
+ {
+   File file = getReadableFile(fileName);
+   ImageInputStream input = ImageIO.createImageInputStream(file);
+   if (input == null)
+     throw new IOException(file + " could not be opened");
+   try {
+     Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+     if (!readers.hasNext())
+       throw new IOException(file + " could not be read as a picture");
+     ImageReader reader = readers.next();
+     try {
+       reader.setInput(input, true, true);
+       return new Dimension(reader.getWidth(0), reader.getHeight(0));
+     } finally {
+       reader.dispose();
+     }
+   } finally {
+     input.close();
+   }
+ }
+ 
+ /**
+  * Method to decode a region of an image file keeping every 
+  * subsampling pixel.  The image is decoded straight into an int 
+  * image when the reader can do that.
+  * @param file the file to read
+  * @param region the part of the file to decode (null for all of it)
+  * @param subsampling keep every subsampling pixel in x and y
+  * @return the decoded image
+  * @throws IOException if the file can't be decoded
+  */
+ private static BufferedImage readImage(File file, Rectangle region,
+                                        int subsampling) throws IOException
+ {
+   ImageInputStream input = ImageIO.createImageInputStream(file);
+   if (input == null)
+     throw new IOException(file + " could not be opened");
+   try {
+     Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+     if (!readers.hasNext())
+       throw new IOException(file + " could not be read as a picture");
+     ImageReader reader = readers.next();
+     try {
+       reader.setInput(input, true, true);
+       ImageReadParam param = reader.getDefaultReadParam();
+       
+       // only decode the part of the region that is in the picture
+       if (region != null)
+       {
+         Rectangle bounds = new Rectangle(0, 0, reader.getWidth(0), 
+                                          reader.getHeight(0));
+         Rectangle clipped = region.intersection(bounds);
+         if (clipped.isEmpty())
+           throw new IOException("the region is outside of " + file);
+         param.setSourceRegion(clipped);
+       }
+       param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+       
+       // decode into an int image if the reader offers one
+       Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+       while (types.hasNext())
+       {
+         ImageTypeSpecifier type = types.next();
+         int imageType = type.getBufferedImageType();
+         if (imageType == BufferedImage.TYPE_INT_RGB ||
+             imageType == BufferedImage.TYPE_INT_ARGB)
+         {
+           param.setDestinationType(type);
+           break;
+         }
+       }
+       return reader.read(0, param);
+     } finally {
+       reader.dispose();
+     }
+   } finally {
+     input.close();
+   }
  }
 
 
@@ -488,14 +1146,37 @@ public class SimplePicture implements DigitalPicture
 
      } catch (Exception ex) {
          System.out.println("There was an error trying to open " + fileName);
-         bufferedImage = new BufferedImage(600,200,
-                                           BufferedImage.TYPE_INT_RGB);
+         setBufferedImage(new BufferedImage(600,200,
+                                            BufferedImage.TYPE_INT_RGB));
          addMessage("Couldn't load " + fileName,5,100);
          return false;
      }
          
  }
 
+ /**
+  * Method to read part of the picture from a filename without 
+  * throwing errors
+  * @param fileName the name of the file to read the picture from
+  * @param region the part of the file to decode (null for all of it)
+  * @param subsampling keep every subsampling pixel in x and y
+  * @return true if success else false
+  */
+ public boolean load(String fileName, Rectangle region, int subsampling)
+ {
+     try {
+         this.loadOrFail(fileName, region, subsampling);
+         return true;
+
+     } catch (Exception ex) {
+         System.out.println("There was an error trying to open " + fileName);
+         setBufferedImage(new BufferedImage(600,200,
+                                            BufferedImage.TYPE_INT_RGB));
+         addMessage("Couldn't load " + fileName,5,100);
+         return false;
+     }
+ }
+
  /**
   * Method to load the picture from the passed file name
   * this just calls load(fileName) and is for name compatibility
@@ -516,7 +1197,7 @@ public class SimplePicture implements DigitalPicture
  public void addMessage(String message, int xPos, int yPos)
  {
    // get a graphics context to use to draw on the buffered image
-   Graphics2D graphics2d = bufferedImage.createGraphics();
+   Graphics2D graphics2d = createOwnGraphics();
    
    // set the color to white
    graphics2d.setPaint(Color.white);
@@ -526,6 +1207,8 @@ public class SimplePicture implements DigitalPicture
    
    // draw the message
    graphics2d.drawString(message,xPos,yPos);
+   graphics2d.dispose();
+   dirtyRegion.markAll();
    
  }
  
@@ -542,28 +1225,33 @@ public class SimplePicture implements DigitalPicture
  
  /**
    * Method to create a new picture by scaling the current
-   * picture by the given 
+   * picture by the given factors.  A bilinear filter is used.
    * @param rFactor the amount to scale in the height (rows)
    * @param cFactor the amount to scale in the width (columns)
    * @return the resulting picture
    */
   public Picture scale(double rFactor, double cFactor)
   {
-    // set up the scale tranform
-    AffineTransform scaleTransform = new AffineTransform();
-    scaleTransform.scale(cFactor,rFactor);
-    
-    // create a new picture object that is the right size
-    Picture result = new Picture((int) (getHeight() * rFactor),
-                                 (int) (getWidth() * cFactor));
-    
-    // get the graphics 2d object to draw on the result
-    Graphics graphics = result.getGraphics();
-    Graphics2D g2 = (Graphics2D) graphics;
-    
-    // draw the current image onto the result image scaled
-    g2.drawImage(this.getImage(),scaleTransform,null);
-    
+    return scale(rFactor,cFactor,Resampler.Filter.BILINEAR);
+  }
+  
+  /**
+   * Method to create a new picture by scaling the current
+   * picture by the given factors with the given filter
+   * @param rFactor the amount to scale in the height (rows)
+   * @param cFactor the amount to scale in the width (columns)
+   * @param filter the filter to use (BOX, BILINEAR, BICUBIC or LANCZOS)
+   * @return the resulting picture
+   */
+  public Picture scale(double rFactor, double cFactor, 
+                       Resampler.Filter filter)
+  {
+    // resize into a new picture object that is the right size
+    PictureMetrics.Sample sample = PictureMetrics.start("scale");
+    Picture result = 
+      new Resampler(filter).resize(this,(int) (getWidth() * cFactor),
+                                   (int) (getHeight() * rFactor));
+    sample.stop(getWidth(), getHeight());
     return result;
   }
   
@@ -615,12 +1303,45 @@ public class SimplePicture implements DigitalPicture
    return result;
  }
  
+ /**
+  * Method to get the extension of a file name (the part after the 
+  * last dot of the name, not counting the directories)
+  * @param fileName the file name
+  * @return the extension or null if there isn't one
+  */
+ private static String getExtension(String fileName)
+ {
+   String name = new File(fileName).getName();
+   int posDot = name.lastIndexOf('.');
+   if (posDot < 0)
+     return null;
+   return name.substring(posDot + 1);
+ }
+ 
  /**
   * Method to write the contents of the picture to a file with 
-  * the passed name
+  * the passed name.  The extension of the name picks the format
+  * (if there isn't one the format the picture was loaded from is
+  * used).
   * @param fileName the name of the file to write the picture to
   */
  public void writeOrFail(String fileName) throws IOException
+ {
+   writeOrFail(fileName, null);
+ }
+ 
+ /**
+  * Method to write the contents of the picture to a file with 
+  * the passed name using an encoder, so the quality and other 
+  * settings can be picked.  The extension of the name (if it has
+  * one) has to be for the format of the encoder, so a jpg encoder
+  * can't write beach.png.
+  * @param fileName the name of the file to write the picture to
+  * @param encoder the encoder to use (null to use the default 
+  * settings for the extension of the file name)
+  */
+ public void writeOrFail(String fileName, PictureEncoder encoder) 
+   throws IOException
  {
    String extension = this.extension; // the default is current
    
@@ -631,7 +1352,7 @@ public class SimplePicture implements DigitalPicture
    // if there is no parent directory use the current media dir
    if (fileLoc == null)
    {
-     fileName = FileChooser.getMediaPath(fileName);
+     fileName = MediaPath.getMediaPath(fileName);
      file = new File(fileName);
      fileLoc = file.getParentFile(); 
    }
@@ -643,15 +1364,29 @@ public class SimplePicture implements DigitalPicture
    }
    
    // get the extension
-   int posDot = fileName.indexOf('.');
-   if (posDot >= 0)
-       extension = fileName.substring(posDot + 1);
+   String fileExtension = getExtension(fileName);
+   if (fileExtension != null)
+       extension = fileExtension;
    
-   // write the contents of the buffered image to the file as jpeg
-   ImageIO.write(bufferedImage, extension, file);
-     
+   // encode the picture in the format for the extension
+   if (encoder == null)
+   {
+     try {
+       encoder = new PictureEncoder(extension);
+     } catch (IllegalArgumentException ex) {
+       throw new IOException("There is no way to write " + extension + 
+                             " files like " + fileName);
+     }
+   }
+   else if (fileExtension != null && !encoder.isFormatFor(fileExtension))
+     throw new IOException("Can't write " + encoder.getFormat() +
+                           " to a " + fileExtension + " file like " + fileName);
+   PictureMetrics.Sample sample = PictureMetrics.start("write");
+   long bytes = encoder.encode(this, file);
+   sample.setFile(file.getPath(), bytes);
+   sample.stop(getWidth(), getHeight());
  }
-
+ 
  /**
   * Method to write the contents of the picture to a file with 
   * the passed name without throwing errors
@@ -678,7 +1413,7 @@ public class SimplePicture implements DigitalPicture
   * the file name to the media directory
   */
  public static String getMediaPath(String fileName) {
-   return FileChooser.getMediaPath(fileName);
+   return MediaPath.getMediaPath(fileName);
  }
  
   /**
@@ -0,0 +1,86 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class with the loops of the bit and grayscale point operations
+ * written with the Vector API, so each step works on as many pixels as
+ * fit in the widest vector register.  PointOperations uses this class
+ * when it has been compiled and the jdk.incubator.vector module is
+ * added, and its own loops when it isn't.  It is kept out of the
+ * classes directory because it only compiles with the module added:
+ * <pre>
+ *   javac --add-modules jdk.incubator.vector -cp classes -d classes vector/VectorKernels.java
+ *   java --add-modules jdk.incubator.vector -cp classes PictureTester
+ * </pre>
+ */
+public class VectorKernels implements PointOperations.Kernels
+{
+  
+  ////////////////////////// fields ///////////////////////////////////
+  
+  /** the widest vector of ints the processor has */
+  private static final VectorSpecies<Integer> SPECIES = 
+    IntVector.SPECIES_PREFERRED;
+  
+  ///////////////////////// methods //////////////////////////////
+  
+  /**
+   * Method to and each value with a mask and then xor it with another
+   * @param values the pixel values to change
+   * @param start the index of the first value to change
+   * @param end the index just after the last value to change
+   * @param andMask the bits to keep
+   * @param xorMask the bits to flip
+   */
+  public void andXor(int[] values, int start, int end, int andMask,
+                     int xorMask)
+  {
+    int i = start;
+    int upperBound = start + SPECIES.loopBound(end - start);
+    for (; i < upperBound; i += SPECIES.length())
+    {
+      IntVector.fromArray(SPECIES, values, i)
+        .and(andMask)
+        .lanewise(VectorOperators.XOR, xorMask)
+        .intoArray(values, i);
+    }
+    for (; i < end; i++)
+      values[i] = (values[i] & andMask) ^ xorMask;
+  }
+  
+  /**
+   * Method to set the red, green, and blue of each value to their
+   * average ((total * 21846) >>> 16), keeping the alpha
+   * @param values the pixel values to change
+   * @param start the index of the first value to change
+   * @param end the index just after the last value to change
+   */
+  public void grayscale(int[] values, int start, int end)
+  {
+    int i = start;
+    int upperBound = start + SPECIES.loopBound(end - start);
+    for (; i < upperBound; i += SPECIES.length())
+    {
+      IntVector value = IntVector.fromArray(SPECIES, values, i);
+      IntVector total = value.lanewise(VectorOperators.LSHR, 16).and(0xff)
+        .add(value.lanewise(VectorOperators.LSHR, 8).and(0xff))
+        .add(value.and(0xff));
+      IntVector avg = total.mul(21846).lanewise(VectorOperators.LSHR, 16);
+      value.and(0xff000000)
+        .or(avg.lanewise(VectorOperators.LSHL, 16))
+        .or(avg.lanewise(VectorOperators.LSHL, 8))
+        .or(avg)
+        .intoArray(values, i);
+    }
+    for (; i < end; i++)
+    {
+      int value = values[i];
+      int total = ((value >> 16) & 0xff) + ((value >> 8) & 0xff) + 
+        (value & 0xff);
+      int avg = (total * 21846) >>> 16;
+      values[i] = (value & 0xff000000) | (avg << 16) | (avg << 8) | avg;
+    }
+  }
+  
+}